@@ -31,6 +31,9 @@ class Entry {
 
     private volatile Menu parent;
 
+    // the menu that this entry was last added to, or null once it has been removed from it (the parent is only known once it is bound)
+    private volatile Menu addedTo;
+
     protected volatile EntryPeer peer;
     protected volatile ImageResizeUtil imageResizeUtil;
 
@@ -72,6 +75,20 @@ class Entry {
         return this.parent;
     }
 
+    // called by the menu (while synchronized on its entries) when this entry is added to it, or removed from it
+    final
+    void setAddedTo(final Menu menu) {
+        this.addedTo = menu;
+    }
+
+    /**
+     * @return true if this entry has been added to the menu, and has not been removed from it since
+     */
+    public final
+    boolean isAddedTo(final Menu menu) {
+        return menu != null && this.addedTo == menu;
+    }
+
     /**
      * @return the Image Resize Utility (with Tray specific cache) that this menu uses
      */
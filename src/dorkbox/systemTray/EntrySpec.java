@@ -0,0 +1,259 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray;
+
+import java.awt.Image;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Describes what a menu entry should look like, for {@link Menu#reconcile(List)}.
+ * <p>
+ * The key identifies the entry between calls to reconcile, so that an entry with the same key (and type) is updated instead of being
+ * re-created. Keys must be unique within a menu.
+ */
+@SuppressWarnings("unused")
+public final
+class EntrySpec {
+    enum Type {
+        ITEM, CHECKBOX, SEPARATOR, STATUS, MENU
+    }
+
+    final Type type;
+    final String key;
+
+    private String text;
+    private Object image;
+    private boolean enabled = true;
+    private String tooltip;
+    private char shortcut = 0;
+    private ActionListener callback;
+    private boolean checked = false;
+
+    final List<EntrySpec> children;
+
+    public static
+    EntrySpec item(final String key, final String text) {
+        return new EntrySpec(Type.ITEM, key, null).text(text);
+    }
+
+    public static
+    EntrySpec checkbox(final String key, final String text) {
+        return new EntrySpec(Type.CHECKBOX, key, null).text(text);
+    }
+
+    public static
+    EntrySpec separator(final String key) {
+        return new EntrySpec(Type.SEPARATOR, key, null);
+    }
+
+    /**
+     * The status entry is always shown first in the menu, so there should only be one (and it should be the first spec)
+     */
+    public static
+    EntrySpec status(final String key, final String text) {
+        return new EntrySpec(Type.STATUS, key, null).text(text);
+    }
+
+    public static
+    EntrySpec menu(final String key, final String text, final List<EntrySpec> children) {
+        return new EntrySpec(Type.MENU, key, Collections.unmodifiableList(new ArrayList<>(children))).text(text);
+    }
+
+    private
+    EntrySpec(final Type type, final String key, final List<EntrySpec> children) {
+        if (key == null) {
+            throw new NullPointerException("key");
+        }
+
+        this.type = type;
+        this.key = key;
+        this.children = children;
+    }
+
+    public
+    EntrySpec text(final String text) {
+        this.text = text;
+        return this;
+    }
+
+    public
+    EntrySpec image(final File imageFile) {
+        this.image = imageFile;
+        return this;
+    }
+
+    public
+    EntrySpec image(final String imagePath) {
+        this.image = imagePath;
+        return this;
+    }
+
+    public
+    EntrySpec image(final URL imageUrl) {
+        this.image = imageUrl;
+        return this;
+    }
+
+    /**
+     * Images are compared by identity, so the same Image instance should be used if the image has not changed.
+     */
+    public
+    EntrySpec image(final Image image) {
+        this.image = image;
+        return this;
+    }
+
+    public
+    EntrySpec enabled(final boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    public
+    EntrySpec tooltip(final String tooltip) {
+        this.tooltip = tooltip;
+        return this;
+    }
+
+    public
+    EntrySpec shortcut(final char shortcut) {
+        this.shortcut = shortcut;
+        return this;
+    }
+
+    public
+    EntrySpec callback(final ActionListener callback) {
+        this.callback = callback;
+        return this;
+    }
+
+    public
+    EntrySpec checked(final boolean checked) {
+        this.checked = checked;
+        return this;
+    }
+
+    public
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * @return a new entry, with all of the properties of this spec (sub-menus are empty, they are filled in by reconcile)
+     */
+    Entry create() {
+        Entry entry;
+        switch (type) {
+            case CHECKBOX:
+                entry = new Checkbox();
+                break;
+            case SEPARATOR:
+                entry = new Separator();
+                break;
+            case STATUS:
+                entry = new Status();
+                break;
+            case MENU:
+                entry = new Menu();
+                break;
+            default:
+                entry = new MenuItem();
+                break;
+        }
+
+        update(entry, null);
+        return entry;
+    }
+
+    /**
+     * Changes only the properties of the entry that are different from this spec.
+     *
+     * @param previous the spec that was last applied to the entry, or null if the entry was just created
+     */
+    void update(final Entry entry, final EntrySpec previous) {
+        if (entry instanceof MenuItem) {
+            MenuItem item = (MenuItem) entry;
+
+            if (!Objects.equals(item.getText(), text)) {
+                item.setText(text);
+            }
+            if (item.getEnabled() != enabled) {
+                item.setEnabled(enabled);
+            }
+            if (!Objects.equals(item.getTooltip(), tooltip)) {
+                item.setTooltip(tooltip);
+            }
+            if (item.getShortcut() != shortcut) {
+                item.setShortcut(shortcut);
+            }
+            if (item.getCallback() != callback) {
+                item.setCallback(callback);
+            }
+
+            // the entry only has the (resized) file, so the image is compared to the one that was last applied
+            Object previousImage = previous == null ? null : previous.image;
+            if (!Objects.equals(previousImage, image)) {
+                if (image instanceof String) {
+                    item.setImage((String) image);
+                }
+                else if (image instanceof URL) {
+                    item.setImage((URL) image);
+                }
+                else if (image instanceof Image) {
+                    item.setImage((Image) image);
+                }
+                else {
+                    item.setImage((File) image);
+                }
+            }
+        }
+        else if (entry instanceof Checkbox) {
+            Checkbox checkbox = (Checkbox) entry;
+
+            if (!Objects.equals(checkbox.getText(), text)) {
+                checkbox.setText(text);
+            }
+            if (checkbox.getEnabled() != enabled) {
+                checkbox.setEnabled(enabled);
+            }
+            if (!Objects.equals(checkbox.getTooltip(), tooltip)) {
+                checkbox.setTooltip(tooltip);
+            }
+            if (checkbox.getShortcut() != shortcut) {
+                checkbox.setShortcut(shortcut);
+            }
+            if (checkbox.getCallback() != callback) {
+                checkbox.setCallback(callback);
+            }
+            if (checkbox.getChecked() != checked) {
+                checkbox.setChecked(checked);
+            }
+        }
+        else if (entry instanceof Status) {
+            Status status = (Status) entry;
+
+            if (!Objects.equals(status.getText(), text)) {
+                status.setText(text);
+            }
+        }
+    }
+}
@@ -24,8 +24,15 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
@@ -49,6 +56,39 @@ class Menu extends MenuItem {
     // access on this object must be synchronized for object visibility
     final List<Entry> menuEntries = new ArrayList<>();
 
+    // the entries created by reconcile, when it is used for the entire menu
+    private final Section allEntries = new Section(null, true);
+
+    /**
+     * A range of the menu entries that is reconciled separately from the rest of the menu. The range starts right after the anchor
+     * entry (or at the start of the menu), and the entries in it must not be changed in any other way.
+     */
+    static final
+    class Section {
+        final Entry anchor;
+        final boolean isEntireMenu;
+
+        // the entries (and the spec that was last applied to them) created by reconcile, by key. Only accessed while synchronized on menuEntries
+        private Map<String, Reconciled> reconciled = Collections.emptyMap();
+        private int size = 0;
+
+        Section(final Entry anchor, final boolean isEntireMenu) {
+            this.anchor = anchor;
+            this.isEntireMenu = isEntireMenu;
+        }
+    }
+
+    private static final
+    class Reconciled {
+        final Entry entry;
+        final EntrySpec spec;
+
+        Reconciled(final Entry entry, final EntrySpec spec) {
+            this.entry = entry;
+            this.spec = spec;
+        }
+    }
+
     public
     Menu() {
     }
@@ -220,12 +260,36 @@ class Menu extends MenuItem {
      */
     public
     <T extends Entry> T add(final T entry, final int index) {
+        addAsync(entry, index);
+        return entry;
+    }
+
+    /**
+     * Adds a menu entry, separator, or sub-menu to this menu. This does not wait for the native menu to change.
+     *
+     * @return a future that completes once the entry has been added to the native menu. If this menu is not in the tray yet, the future
+     *         completes immediately (the entry is added along with this menu).
+     */
+    public final
+    Future<?> addAsync(final Entry entry) {
+        return addAsync(entry, -1);
+    }
+
+    /**
+     * Adds a menu entry, separator, or sub-menu to this menu. This does not wait for the native menu to change.
+     *
+     * @return a future that completes once the entry has been added to the native menu. If this menu is not in the tray yet, the future
+     *         completes immediately (the entry is added along with this menu).
+     */
+    public
+    Future<?> addAsync(final Entry entry, final int index) {
         final int insertIndex;
         synchronized (menuEntries) {
             // access on this object must be synchronized for object visibility
             if (index == -1) {
                 insertIndex = menuEntries.size();
                 menuEntries.add(entry);
+                entry.setAddedTo(this);
             } else {
                 if (!menuEntries.isEmpty() && menuEntries.get(0) instanceof Status) {
                     // the "status" menu entry is ALWAYS first
@@ -235,18 +299,274 @@ class Menu extends MenuItem {
                 }
 
                 menuEntries.add(index, entry);
+                entry.setAddedTo(this);
             }
         }
 
+        final CompletableFuture<Void> added = new CompletableFuture<>();
+
         // all ADD/REMOVE events have to be queued on our own dispatch thread, so the execution order of the events can be maintained.
         EventDispatch.runLater(()->{
             EntryPeer finalPeer = peer;
-            if (finalPeer != null) {
-                ((MenuPeer) finalPeer).add(Menu.this, entry, insertIndex);
+            if (finalPeer == null) {
+                added.complete(null);
+                return;
+            }
+
+            try {
+                ((MenuPeer) finalPeer).addAsync(Menu.this, entry, insertIndex).whenComplete((ignored, error)->{
+                    if (error != null) {
+                        added.completeExceptionally(error);
+                    } else {
+                        added.complete(null);
+                    }
+                });
+            } catch (RuntimeException e) {
+                added.completeExceptionally(e);
+                throw e;
             }
         });
 
-        return entry;
+        return added;
+    }
+
+    /**
+     * Changes this menu so that it contains exactly the specified entries (in the specified order), with as few changes to the native
+     * menu as possible.
+     * <p>
+     * Entries are matched by their key to the entries that were created by a previous call to reconcile, and are updated (instead of
+     * re-created) when their type has not changed. Only the properties that are different are changed, and only the entries that are
+     * out of order are moved. All other entries (including entries that were added with {@link #add(Entry)}) are removed.
+     *
+     * @param specs the complete list of entries that this menu should contain
+     */
+    public
+    void reconcile(final List<EntrySpec> specs) {
+        reconcile(allEntries, specs);
+    }
+
+    /**
+     * Reconciles only the entries in the section (see {@link #reconcile(List)}), the rest of the menu is left as-is.
+     *
+     * @return false if the section no longer exists (because the anchor entry was removed), in which case nothing is changed
+     */
+    boolean reconcile(final Section section, final List<EntrySpec> specs) {
+        final int size = specs.size();
+        final Entry[] target = new Entry[size];
+        final List<Entry> removed = new ArrayList<>();
+        final List<Entry> moved = new ArrayList<>();
+        boolean created = false;
+        final int start;
+
+        // these are applied after the menu is unlocked, since changing a property can call into the peer
+        final List<Runnable> updates = new ArrayList<>();
+
+        synchronized (menuEntries) {
+            // access on this object must be synchronized for object visibility
+            final List<Entry> range;
+            if (section.isEntireMenu) {
+                start = 0;
+                range = menuEntries;
+            }
+            else {
+                int anchorIndex = -1;
+                if (section.anchor != null) {
+                    anchorIndex = indexOf(section.anchor);
+                    if (anchorIndex == -1) {
+                        return false;
+                    }
+                }
+
+                start = anchorIndex + 1;
+                range = menuEntries.subList(start, Math.min(start + section.size, menuEntries.size()));
+            }
+
+            Map<String, Reconciled> previous = section.reconciled;
+
+            Map<Entry, Integer> oldIndex = new IdentityHashMap<>();
+            for (int i = 0; i < range.size(); i++) {
+                oldIndex.put(range.get(i), i);
+            }
+
+            Map<String, Reconciled> next = new HashMap<>(size * 2);
+            int[] keptIndex = new int[size];
+            int keptCount = 0;
+            int[] keptPosition = new int[size];
+
+            for (int i = 0; i < size; i++) {
+                final EntrySpec spec = specs.get(i);
+                if (next.containsKey(spec.key)) {
+                    throw new IllegalArgumentException("Duplicate menu entry key: " + spec.key);
+                }
+
+                final Reconciled last = previous.get(spec.key);
+                final Entry entry;
+
+                if (last != null && last.spec.type == spec.type && oldIndex.containsKey(last.entry)) {
+                    entry = last.entry;
+                    keptIndex[keptCount] = oldIndex.remove(entry);
+                    keptPosition[keptCount] = i;
+                    keptCount++;
+
+                    updates.add(()->spec.update(entry, last.spec));
+                    if (spec.type == EntrySpec.Type.MENU) {
+                        updates.add(()->((Menu) entry).reconcile(spec.children));
+                    }
+                }
+                else {
+                    entry = spec.create();
+                    created = true;
+                    if (spec.type == EntrySpec.Type.MENU) {
+                        // nothing is native yet, so the sub-menu entries are added when the sub-menu is
+                        ((Menu) entry).reconcile(spec.children);
+                    }
+                }
+
+                target[i] = entry;
+                next.put(spec.key, new Reconciled(entry, spec));
+            }
+
+            // everything that is left over is not wanted anymore
+            for (Entry entry : range) {
+                if (oldIndex.containsKey(entry)) {
+                    removed.add(entry);
+                }
+            }
+
+            // the entries that are already in the correct order (relative to each other) stay where they are, all the others are moved.
+            Set<Integer> inOrder = longestIncreasing(keptIndex, keptCount);
+            for (int i = 0; i < keptCount; i++) {
+                if (!inOrder.contains(i)) {
+                    moved.add(target[keptPosition[i]]);
+                }
+            }
+
+            range.clear();
+            Collections.addAll(range, target);
+            section.reconciled = next;
+            section.size = size;
+        }
+
+        for (Runnable update : updates) {
+            update.run();
+        }
+
+        if (!created && removed.isEmpty() && moved.isEmpty()) {
+            // only the properties changed (if anything)
+            return true;
+        }
+
+        // all ADD/REMOVE events have to be queued on our own dispatch thread, so the execution order of the events can be maintained.
+        EventDispatch.runLater(()->{
+            for (Entry entry : removed) {
+                entry.remove();
+            }
+
+            // there is no way to move a native menu entry, so it is removed and added again
+            for (Entry entry : moved) {
+                detach(entry);
+            }
+
+            EntryPeer finalPeer = peer;
+            if (finalPeer == null) {
+                return;
+            }
+
+            // the entries are added in order, so the entries before them are always already there
+            for (int i = 0; i < target.length; i++) {
+                Entry entry = target[i];
+                if (!entry.hasPeer()) {
+                    ((MenuPeer) finalPeer).add(Menu.this, entry, start + i);
+                }
+            }
+        });
+
+        return true;
+    }
+
+    /**
+     * @return the keys of the entries that were created by {@link #reconcile(List)}
+     */
+    Map<Entry, String> getKeys() {
+        synchronized (menuEntries) {
+            Map<Entry, String> keys = new IdentityHashMap<>();
+            for (Map.Entry<String, Reconciled> entry : allEntries.reconciled.entrySet()) {
+                keys.put(entry.getValue().entry, entry.getKey());
+            }
+            return keys;
+        }
+    }
+
+    // this must be called while synchronized on menuEntries
+    private
+    int indexOf(final Entry entry) {
+        for (int i = 0, size = menuEntries.size(); i < size; i++) {
+            if (menuEntries.get(i) == entry) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes the native menu entry (and all of its sub-menu entries) without removing the entry, so it can be added again.
+     */
+    private static
+    void detach(final Entry entry) {
+        if (entry instanceof Menu) {
+            Menu menu = (Menu) entry;
+
+            List<Entry> copy;
+            synchronized (menu.menuEntries) {
+                copy = new ArrayList<>(menu.menuEntries);
+            }
+
+            for (Entry child : copy) {
+                detach(child);
+            }
+
+            // Menu.remove() would also remove all of the entries
+            menu.remove_();
+        }
+        else {
+            entry.remove();
+        }
+    }
+
+    /**
+     * @return the indexes (into values) of the longest strictly increasing subsequence of values
+     */
+    private static
+    Set<Integer> longestIncreasing(final int[] values, final int count) {
+        // tails[k] is the index of the smallest value that ends an increasing subsequence of length k+1
+        int[] tails = new int[count];
+        int[] previous = new int[count];
+        int length = 0;
+
+        for (int i = 0; i < count; i++) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[tails[mid]] < values[i]) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+
+            previous[i] = low > 0 ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) {
+                length++;
+            }
+        }
+
+        Set<Integer> result = new HashSet<>(length * 2);
+        for (int i = length > 0 ? tails[length - 1] : -1; i >= 0; i = previous[i]) {
+            result.add(i);
+        }
+        return result;
     }
 
     /**
@@ -386,6 +706,7 @@ class Menu extends MenuItem {
                     final Entry entry__ = iterator.next();
                     if (entry__ == entry) {
                         iterator.remove();
+                        entry.setAddedTo(null);
                         toRemove = entry__;
                         break;
                     }
@@ -438,6 +759,7 @@ class Menu extends MenuItem {
     void remove() {
         synchronized (menuEntries) {
             for (final Entry entry : menuEntries) {
+                entry.setAddedTo(null);
                 entry.remove();
             }
 
@@ -21,14 +21,18 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.concurrent.Future;
 
 import javax.imageio.stream.ImageInputStream;
 import javax.swing.Icon;
 import javax.swing.ImageIcon;
 import javax.swing.JMenuItem;
 
+import dorkbox.systemTray.peer.EntryPeer;
 import dorkbox.systemTray.peer.MenuItemPeer;
 import dorkbox.systemTray.util.ImageResizeUtil;
+import dorkbox.systemTray.util.ImageSourceCache;
+import dorkbox.systemTray.util.SharedImageStore;
 import dorkbox.util.SwingUtil;
 
 /**
@@ -42,6 +46,12 @@ class MenuItem extends Entry {
     private volatile String text;
     private volatile Object unknownImage = null;
     private volatile File imageFile;
+
+    // the original image (only if it can be read again), so the image can be re-rendered when the screen scale changes
+    private volatile Object imageSource = null;
+
+    // saving the image (while this entry is not displayed) to the image cache, so that the image/stream is not kept in memory
+    private Future<?> pendingSource = null;
     private volatile ActionListener callback;
 
     // default enabled is always true
@@ -94,42 +104,42 @@ class MenuItem extends Entry {
     public
     MenuItem(final String text, final String imagePath, final ActionListener callback) {
         this.text = text;
-        this.unknownImage = imagePath; // imageFile is set in the 'bind' call
+        setUnknownImage(imagePath); // imageFile is set in the 'bind' call
         this.callback = callback;
     }
 
     public
     MenuItem(final String text, final File imageFile, final ActionListener callback) {
         this.text = text;
-        this.unknownImage = imageFile; // imageFile is set in the 'bind' call
+        setUnknownImage(imageFile); // imageFile is set in the 'bind' call
         this.callback = callback;
     }
 
     public
     MenuItem(final String text, final URL imageUrl, final ActionListener callback) {
         this.text = text;
-        this.unknownImage = imageUrl; // imageFile is set in the 'bind' call
+        setUnknownImage(imageUrl); // imageFile is set in the 'bind' call
         this.callback = callback;
     }
 
     public
     MenuItem(final String text, final InputStream inputStream, final ActionListener callback) {
         this.text = text;
-        this.unknownImage = inputStream; // imageFile is set in the 'bind' call
+        setUnknownImage(inputStream); // imageFile is set in the 'bind' call
         this.callback = callback;
     }
 
     public
     MenuItem(final String text, final Image image, final ActionListener callback) {
         this.text = text;
-        this.unknownImage = image; // imageFile is set in the 'bind' call
+        setUnknownImage(image); // imageFile is set in the 'bind' call
         this.callback = callback;
     }
 
     public
     MenuItem(final String text, final ImageInputStream imageStream, final ActionListener callback) {
         this.text = text;
-        this.unknownImage = imageStream; // imageFile is set in the 'bind' call
+        setUnknownImage(imageStream); // imageFile is set in the 'bind' call
         this.callback = callback;
     }
 
@@ -163,25 +173,160 @@ class MenuItem extends Entry {
     }
 
     private void realizeImageFile() {
-        if (this.unknownImage instanceof String) {
-            this.imageFile = imageResizeUtil.shouldResizeOrCache(false, (String) this.unknownImage);
+        waitForPendingSource();
+
+        Object unknownImage = this.unknownImage;
+        if (unknownImage != null) {
+            File imageFile = toImageFile(false, unknownImage);
+            if (imageFile == unknownImage) {
+                // it wasn't resized (AUTO_SIZE is disabled), so this is the same file -- which needs its own reference
+                SharedImageStore.acquire(imageFile);
+            }
+            replaceImageFile(imageFile);
+
+            synchronized (this) {
+                setImageSourceField(getReusableSource(unknownImage));
+            }
         }
-        else if (this.unknownImage instanceof File) {
-            this.imageFile = imageResizeUtil.shouldResizeOrCache(false, (File) this.unknownImage);
+
+        synchronized (this) {
+            setUnknownImageField(null);
         }
-        else if (this.unknownImage instanceof URL) {
-            this.imageFile = imageResizeUtil.shouldResizeOrCache(false, (URL) this.unknownImage);
+    }
+
+    /**
+     * Assigns a new image, which is converted to an image file once this entry is displayed.
+     * <p>
+     * Until then, images that are in memory (or are a stream) are saved to the image cache in the background -- so that only the file
+     * is kept by this entry.
+     */
+    private
+    void setUnknownImage(final Object image) {
+        synchronized (this) {
+            if (pendingSource != null) {
+                // if it is already running, it will notice that the image changed (and discard what it saved)
+                pendingSource.cancel(false);
+                pendingSource = null;
+            }
+
+            setUnknownImageField(image);
+
+            // until a tray is created, there is no image cache for this application. The image is kept until this entry is displayed
+            if (peer == null && ImageSourceCache.isHeavy(image) && SharedImageStore.getCache() != null) {
+                pendingSource = ImageSourceCache.submit(()->saveSource(image));
+            }
         }
-        else if (this.unknownImage instanceof InputStream) {
-            this.imageFile = imageResizeUtil.shouldResizeOrCache(false, (InputStream) this.unknownImage);
+    }
+
+    // called on an image loading thread
+    private
+    void saveSource(final Object image) {
+        File file = ImageSourceCache.save(image);
+        if (file == null) {
+            // the original image is used instead (when this entry is displayed)
+            return;
         }
-        else if (this.unknownImage instanceof Image) {
-            this.imageFile = imageResizeUtil.shouldResizeOrCache(false, (Image) this.unknownImage);
+
+        synchronized (this) {
+            if (this.unknownImage == image) {
+                setUnknownImageField(file);
+            }
         }
-        else if (this.unknownImage instanceof ImageInputStream) {
-            this.imageFile = imageResizeUtil.shouldResizeOrCache(false, (ImageInputStream) this.unknownImage);
+
+        // this entry has its own reference to the file (if it is still using it)
+        SharedImageStore.release(file);
+    }
+
+    /**
+     * Streams can only be read once, so if the image is being saved to the image cache, we have to wait for that to finish
+     */
+    private
+    void waitForPendingSource() {
+        Future<?> pending;
+        synchronized (this) {
+            pending = pendingSource;
+            pendingSource = null;
+        }
+
+        if (pending != null && !pending.cancel(false)) {
+            // it was already running (or has finished)
+            try {
+                pending.get();
+            } catch (Exception e) {
+                SystemTray.logger.error("Error saving the image for menu entry {}", text, e);
+            }
+        }
+    }
+
+    // both of these can be a cached image (see ImageSourceCache), which must stay referenced while it is used. Must be synchronized
+    private
+    void setUnknownImageField(final Object image) {
+        Object previous = this.unknownImage;
+        this.unknownImage = image;
+        swapReference(previous, image);
+    }
+
+    private
+    void setImageSourceField(final Object imageSource) {
+        Object previous = this.imageSource;
+        this.imageSource = imageSource;
+        swapReference(previous, imageSource);
+    }
+
+    private static
+    void swapReference(final Object previous, final Object next) {
+        // files that are not in the image cache are ignored
+        if (next instanceof File) {
+            SharedImageStore.acquire((File) next);
+        }
+        if (previous instanceof File) {
+            SharedImageStore.release((File) previous);
         }
-        this.unknownImage = null;
+    }
+
+    /**
+     * The image files are shared (via the {@link SharedImageStore}) with other entries and trays, so the reference to the new image is
+     * kept, and the reference to the previous image is released.
+     */
+    private synchronized
+    void replaceImageFile(final File imageFile) {
+        File previousFile = this.imageFile;
+        this.imageFile = imageFile;
+        SharedImageStore.release(previousFile);
+    }
+
+    private
+    File toImageFile(final boolean isTrayImage, final Object image) {
+        if (image instanceof String) {
+            return imageResizeUtil.shouldResizeOrCache(isTrayImage, (String) image);
+        }
+        else if (image instanceof File) {
+            return imageResizeUtil.shouldResizeOrCache(isTrayImage, (File) image);
+        }
+        else if (image instanceof URL) {
+            return imageResizeUtil.shouldResizeOrCache(isTrayImage, (URL) image);
+        }
+        else if (image instanceof InputStream) {
+            return imageResizeUtil.shouldResizeOrCache(isTrayImage, (InputStream) image);
+        }
+        else if (image instanceof Image) {
+            return imageResizeUtil.shouldResizeOrCache(isTrayImage, (Image) image);
+        }
+        else if (image instanceof ImageInputStream) {
+            return imageResizeUtil.shouldResizeOrCache(isTrayImage, (ImageInputStream) image);
+        }
+
+        return null;
+    }
+
+    private static
+    Object getReusableSource(final Object image) {
+        // streams have already been consumed, so they cannot be read again
+        if (image instanceof InputStream || image instanceof ImageInputStream) {
+            return null;
+        }
+
+        return image;
     }
 
     /**
@@ -205,7 +350,20 @@ class MenuItem extends Entry {
 
     protected
     void setImageFromTray(final File imageFile) {
-        this.imageFile = imageFile;
+        setImageFromTray(imageFile, null);
+    }
+
+    /**
+     * @param imageFile the resized + cached image file. This entry takes over the reference to it (see {@link SharedImageStore})
+     * @param imageSource the original image, so that it can be re-rendered when the screen scale changes. Null if there is none.
+     */
+    protected
+    void setImageFromTray(final File imageFile, final Object imageSource) {
+        replaceImageFile(imageFile);
+
+        synchronized (this) {
+            setImageSourceField(getReusableSource(imageSource));
+        }
 
         if (peer != null) {
             realizeImageFile();
@@ -213,6 +371,70 @@ class MenuItem extends Entry {
         }
     }
 
+    /**
+     * Re-renders the image (from the original image) at the current image size. This is slow, so it should not be called on the
+     * event dispatch thread.
+     *
+     * @return the action which assigns the new image to the peer, or null if there is nothing to change.
+     */
+    Runnable rescaleImage(final boolean isTrayImage) {
+        final Object source = this.imageSource;
+        final File previousFile = this.imageFile;
+
+        if (!SystemTray.AUTO_SIZE || source == null || peer == null) {
+            return null;
+        }
+
+        final File newFile = toImageFile(isTrayImage, source);
+        if (newFile == null || newFile.equals(previousFile)) {
+            SharedImageStore.release(newFile);
+            return null;
+        }
+
+        return ()->{
+            synchronized (this) {
+                // the image was changed while we were busy re-rendering it, so the new image is already correct
+                if (this.imageFile != previousFile || this.imageSource != source) {
+                    SharedImageStore.release(newFile);
+                    return;
+                }
+
+                replaceImageFile(newFile);
+            }
+
+            EntryPeer peer = this.peer;
+            if (peer != null) {
+                ((MenuItemPeer) peer).setImage(this);
+            }
+        };
+    }
+
+    /**
+     * Releases the image, since this entry no longer displays it. If the entry is added again, the image is re-created.
+     */
+    void releaseImage() {
+        synchronized (this) {
+            Object imageSource = this.imageSource;
+            if (imageSource == null) {
+                // there is no way to re-create the image, so we have to keep using it
+                return;
+            }
+
+            if (this.unknownImage == null) {
+                setUnknownImageField(imageSource);
+            }
+        }
+
+        replaceImageFile(null);
+    }
+
+    @Override
+    public
+    void remove() {
+        super.remove();
+        releaseImage();
+    }
+
     /**
      * Gets the File (which is the only cross-platform solution) that is assigned to this menu entry.
      * <p>
@@ -223,6 +445,13 @@ class MenuItem extends Entry {
         return imageFile;
     }
 
+    /**
+     * @return the original image (that the image file was created from), or null if it cannot be used again (ie: it was a stream)
+     */
+    Object getImageSource() {
+        return imageSource;
+    }
+
     /**
      * Gets the callback assigned to this menu entry
      */
@@ -282,7 +511,7 @@ class MenuItem extends Entry {
      */
     public
     void setImage(final File imageFile) {
-        this.unknownImage = imageFile;
+        setUnknownImage(imageFile);
 
         if (peer != null) {
             realizeImageFile(); // imageResizeUtil is set in the 'bind' call (which is also when peer is assigned)
@@ -299,7 +528,7 @@ class MenuItem extends Entry {
      */
     public
     void setImage(final String imagePath) {
-        this.unknownImage = imagePath;
+        setUnknownImage(imagePath);
 
         if (peer != null) {
             realizeImageFile(); // imageResizeUtil is set in the 'bind' call (which is also when peer is assigned)
@@ -316,7 +545,7 @@ class MenuItem extends Entry {
      */
     public
     void setImage(final URL imageUrl) {
-        this.unknownImage = imageUrl;
+        setUnknownImage(imageUrl);
 
         if (peer != null) {
             realizeImageFile(); // imageResizeUtil is set in the 'bind' call (which is also when peer is assigned)
@@ -333,7 +562,7 @@ class MenuItem extends Entry {
      */
     public
     void setImage(final InputStream inputStream) {
-        this.unknownImage = inputStream;
+        setUnknownImage(inputStream);
 
         if (peer != null) {
             realizeImageFile(); // imageResizeUtil is set in the 'bind' call (which is also when peer is assigned)
@@ -350,7 +579,7 @@ class MenuItem extends Entry {
      */
     public
     void setImage(final Image image) {
-        this.unknownImage = image;
+        setUnknownImage(image);
 
         if (peer != null) {
             realizeImageFile(); // imageResizeUtil is set in the 'bind' call (which is also when peer is assigned)
@@ -367,7 +596,7 @@ class MenuItem extends Entry {
      */
     public
     void setImage(final ImageInputStream imageStream) {
-        this.unknownImage = imageStream;
+        setUnknownImage(imageStream);
 
         if (peer != null) {
             realizeImageFile(); // imageResizeUtil is set in the 'bind' call (which is also when peer is assigned)
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray;
+
+import java.awt.event.ActionListener;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import dorkbox.systemTray.util.ImageResizeUtil;
+import dorkbox.systemTray.util.SharedImageStore;
+
+/**
+ * Saves (and restores) what the tray menu looks like, so that it can be shown immediately on the next launch -- before the application
+ * has loaded the data it needs to create the menu.
+ * <p>
+ * The images are saved as the (already resized) images in the image cache, along with the original image files they were resized from.
+ * When the application sets the same (unchanged) original image again, the resized image is reused instead of being resized again.
+ * Entries that were created by {@link Menu#reconcile(List)} keep their keys, so that reconciling the menu with the real entries only
+ * changes what is different.
+ */
+final
+class MenuSnapshot {
+    private static final int MAGIC = 0x5354534E; // STSN
+    private static final int VERSION = 2;
+
+    // the restored entries do nothing when clicked, until the application replaces them with the real entries
+    private static final ActionListener PLACEHOLDER_CALLBACK = e->{
+        if (SystemTray.DEBUG) {
+            SystemTray.logger.debug("The menu entry was clicked before the menu was loaded.");
+        }
+    };
+
+    static
+    void save(final Tray tray, final Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+
+                writeImage(out, tray.getImage(), tray.getImageSource());
+                writeString(out, tray.getTooltip());
+
+                writeEntries(out, tray);
+            }
+
+            // so that a partially written snapshot is never read
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            // don't leave the partially written snapshot behind
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return false if there is no snapshot (or it cannot be read)
+     */
+    static
+    boolean restore(final SystemTray systemTray, final Tray tray, final Path path) {
+        if (!Files.isReadable(path)) {
+            return false;
+        }
+
+        final File image;
+        final String tooltip;
+        final List<EntrySpec> specs;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+                SystemTray.logger.error("Unable to restore the menu snapshot, it is not a valid snapshot: {}", path);
+                return false;
+            }
+
+            image = readImage(in);
+            tooltip = readString(in);
+            specs = readEntries(in);
+        } catch (Exception e) {
+            SystemTray.logger.error("Unable to restore the menu snapshot: {}", path, e);
+            return false;
+        }
+
+        if (image != null) {
+            systemTray.setImage(image);
+        }
+        if (tooltip != null) {
+            systemTray.setTooltip(tooltip);
+        }
+
+        tray.reconcile(specs);
+        return true;
+    }
+
+    private static
+    void writeEntries(final DataOutputStream out, final Menu menu) throws IOException {
+        final List<Entry> entries = menu.getEntries();
+        final Map<Entry, String> keys = menu.getKeys();
+
+        out.writeInt(entries.size());
+
+        for (int i = 0; i < entries.size(); i++) {
+            final Entry entry = entries.get(i);
+
+            String key = keys.get(entry);
+            if (key == null) {
+                // this entry was added directly, so it is replaced when the menu is reconciled
+                key = "#" + i;
+            }
+
+            if (entry instanceof Menu) {
+                final Menu subMenu = (Menu) entry;
+                out.writeByte(EntrySpec.Type.MENU.ordinal());
+                out.writeUTF(key);
+                writeItem(out, subMenu);
+                writeEntries(out, subMenu);
+            }
+            else if (entry instanceof MenuItem) {
+                out.writeByte(EntrySpec.Type.ITEM.ordinal());
+                out.writeUTF(key);
+                writeItem(out, (MenuItem) entry);
+            }
+            else if (entry instanceof Checkbox) {
+                final Checkbox checkbox = (Checkbox) entry;
+                out.writeByte(EntrySpec.Type.CHECKBOX.ordinal());
+                out.writeUTF(key);
+                writeString(out, checkbox.getText());
+                out.writeBoolean(checkbox.getEnabled());
+                out.writeChar(checkbox.getShortcut());
+                writeString(out, checkbox.getTooltip());
+                out.writeBoolean(checkbox.getChecked());
+            }
+            else if (entry instanceof Status) {
+                out.writeByte(EntrySpec.Type.STATUS.ordinal());
+                out.writeUTF(key);
+                writeString(out, ((Status) entry).getText());
+            }
+            else {
+                out.writeByte(EntrySpec.Type.SEPARATOR.ordinal());
+                out.writeUTF(key);
+            }
+        }
+    }
+
+    private static
+    void writeItem(final DataOutputStream out, final MenuItem item) throws IOException {
+        writeString(out, item.getText());
+        out.writeBoolean(item.getEnabled());
+        out.writeChar(item.getShortcut());
+        writeString(out, item.getTooltip());
+        writeImage(out, item.getImage(), item.getImageSource());
+    }
+
+    private static
+    List<EntrySpec> readEntries(final DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        final List<EntrySpec> specs = new ArrayList<>(count);
+        final EntrySpec.Type[] types = EntrySpec.Type.values();
+
+        for (int i = 0; i < count; i++) {
+            final int type = in.readUnsignedByte();
+            if (type >= types.length) {
+                throw new IOException("Unknown menu entry type: " + type);
+            }
+
+            final String key = in.readUTF();
+            final EntrySpec spec;
+
+            switch (types[type]) {
+                case MENU: {
+                    final String text = readString(in);
+                    final boolean enabled = in.readBoolean();
+                    final char shortcut = in.readChar();
+                    final String tooltip = readString(in);
+                    final File image = readImage(in);
+
+                    spec = EntrySpec.menu(key, text, readEntries(in))
+                                    .enabled(enabled)
+                                    .shortcut(shortcut)
+                                    .tooltip(tooltip)
+                                    .image(image);
+                    break;
+                }
+                case ITEM:
+                    spec = EntrySpec.item(key, readString(in))
+                                    .enabled(in.readBoolean())
+                                    .shortcut(in.readChar())
+                                    .tooltip(readString(in))
+                                    .image(readImage(in))
+                                    .callback(PLACEHOLDER_CALLBACK);
+                    break;
+                case CHECKBOX:
+                    spec = EntrySpec.checkbox(key, readString(in))
+                                    .enabled(in.readBoolean())
+                                    .shortcut(in.readChar())
+                                    .tooltip(readString(in))
+                                    .checked(in.readBoolean())
+                                    .callback(PLACEHOLDER_CALLBACK);
+                    break;
+                case STATUS:
+                    spec = EntrySpec.status(key, readString(in));
+                    break;
+                default:
+                    spec = EntrySpec.separator(key);
+                    break;
+            }
+
+            specs.add(spec);
+        }
+
+        return specs;
+    }
+
+    // the image is saved as the path of the (resized) image, if it is in the image cache, and the original image file (if there is one)
+    private static
+    void writeImage(final DataOutputStream out, final File image, final Object source) throws IOException {
+        if (image == null) {
+            out.writeBoolean(false);
+            return;
+        }
+
+        out.writeBoolean(true);
+        out.writeUTF(image.getAbsolutePath());
+        out.writeBoolean(SharedImageStore.isTracked(image));
+
+        File sourceFile = null;
+        if (source instanceof File) {
+            sourceFile = (File) source;
+        }
+        else if (source instanceof String) {
+            sourceFile = new File((String) source);
+        }
+
+        if (sourceFile != null && sourceFile.isFile() && !sourceFile.equals(image)) {
+            out.writeBoolean(true);
+            out.writeUTF(sourceFile.getAbsolutePath());
+            out.writeLong(sourceFile.length());
+            out.writeLong(sourceFile.lastModified());
+        }
+        else {
+            out.writeBoolean(false);
+        }
+    }
+
+    // null if there is no image, or if it no longer exists
+    private static
+    File readImage(final DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        final File image = new File(in.readUTF());
+        final boolean isCached = in.readBoolean();
+
+        File source = null;
+        long sourceLength = 0L;
+        long sourceLastModified = 0L;
+        if (in.readBoolean()) {
+            source = new File(in.readUTF());
+            sourceLength = in.readLong();
+            sourceLastModified = in.readLong();
+        }
+
+        if (!image.canRead()) {
+            return null;
+        }
+
+        // only if the original image has not changed since it was resized
+        if (isCached && source != null && source.length() == sourceLength && source.lastModified() == sourceLastModified) {
+            ImageResizeUtil.rememberCached(source, image);
+        }
+
+        return image;
+    }
+
+    private static
+    void writeString(final DataOutputStream out, final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static
+    String readString(final DataInputStream in) throws IOException {
+        if (in.readBoolean()) {
+            return in.readUTF();
+        }
+        return null;
+    }
+
+    private
+    MenuSnapshot() {
+    }
+}
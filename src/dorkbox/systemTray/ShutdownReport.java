@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What was discarded by {@link SystemTray#shutdownNow(java.time.Duration)}, and how long each part of the shutdown took.
+ */
+@SuppressWarnings("unused")
+public final
+class ShutdownReport {
+    private final long droppedEvents;
+    private final long droppedUpdates;
+    private final long cancelNanos;
+    private final long teardownNanos;
+    private final long dispatchNanos;
+    private final boolean completed;
+
+    ShutdownReport(final long droppedEvents, final long droppedUpdates,
+                   final long cancelNanos, final long teardownNanos, final long dispatchNanos,
+                   final boolean completed) {
+        this.droppedEvents = droppedEvents;
+        this.droppedUpdates = droppedUpdates;
+        this.cancelNanos = cancelNanos;
+        this.teardownNanos = teardownNanos;
+        this.dispatchNanos = dispatchNanos;
+        this.completed = completed;
+    }
+
+    /**
+     * @return the number of queued tasks on the event dispatch (ie: adding/removing menu entries, or menu callbacks) that were discarded
+     */
+    public
+    long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    /**
+     * @return the number of changes to the native menu entries (ie: text, images, enabled) that were discarded
+     */
+    public
+    long getDroppedUpdates() {
+        return droppedUpdates;
+    }
+
+    /**
+     * @return how long it took to discard the pending work, in nanoseconds
+     */
+    public
+    long getCancelNanos() {
+        return cancelNanos;
+    }
+
+    /**
+     * @return how long it took to remove the native tray and menu, in nanoseconds
+     */
+    public
+    long getTeardownNanos() {
+        return teardownNanos;
+    }
+
+    /**
+     * @return how long it took for the event dispatch to shut down, in nanoseconds
+     */
+    public
+    long getDispatchNanos() {
+        return dispatchNanos;
+    }
+
+    /**
+     * @return true if the shutdown finished before the deadline
+     */
+    public
+    boolean isCompleted() {
+        return completed;
+    }
+
+    @Override
+    public
+    String toString() {
+        return "ShutdownReport{" +
+               "droppedEvents=" + droppedEvents +
+               ", droppedUpdates=" + droppedUpdates +
+               ", cancel=" + TimeUnit.NANOSECONDS.toMillis(cancelNanos) + "ms" +
+               ", teardown=" + TimeUnit.NANOSECONDS.toMillis(teardownNanos) + "ms" +
+               ", dispatch=" + TimeUnit.NANOSECONDS.toMillis(dispatchNanos) + "ms" +
+               ", completed=" + completed +
+               '}';
+    }
+}
@@ -15,15 +15,25 @@
  */
 package dorkbox.systemTray;
 
-import static dorkbox.systemTray.util.AutoDetectTrayType.fromClass;
-
 import java.awt.Component;
 import java.awt.GraphicsEnvironment;
 import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.imageio.stream.ImageInputStream;
@@ -45,18 +55,18 @@ import dorkbox.jna.linux.GtkCheck;
 import dorkbox.jna.linux.GtkEventDispatch;
 import dorkbox.jna.rendering.RenderProvider;
 import dorkbox.os.OS;
+import dorkbox.systemTray.gnomeShell.ExtensionSupport;
 import dorkbox.systemTray.ui.swing.SwingUIFactory;
 import dorkbox.systemTray.util.AutoDetectTrayType;
 import dorkbox.systemTray.util.EventDispatch;
 import dorkbox.systemTray.util.ImageResizeUtil;
-import dorkbox.systemTray.util.LinuxSwingUI;
+import dorkbox.systemTray.util.MenuVisibility;
+import dorkbox.systemTray.util.ScaleChangeMonitor;
+import dorkbox.systemTray.util.SharedImageStore;
 import dorkbox.systemTray.util.SizeAndScaling;
 import dorkbox.systemTray.util.SizeAndScalingWindows;
-import dorkbox.systemTray.util.SystemTrayFixesLinux;
-import dorkbox.systemTray.util.SystemTrayFixesMacOS;
-import dorkbox.systemTray.util.SystemTrayFixesWindows;
-import dorkbox.systemTray.util.WindowsSwingUI;
-import dorkbox.util.CacheUtil;
+import dorkbox.systemTray.util.TrayProvider;
+import dorkbox.util.NamedThreadFactory;
 import dorkbox.util.SwingUtil;
 
 
@@ -143,6 +153,47 @@ class SystemTray {
      */
     public static volatile SwingUIFactory SWING_UI = null;
 
+    /**
+     * The maximum number of decoded tray icon images that are kept in memory (for the Swing, AWT and macOS trays). When there are
+     * more, the least-recently-used images are flushed.
+     */
+    public static volatile int IMAGE_CACHE_SIZE = Integer.getInteger(SystemTray.class.getSimpleName() + ".IMAGE_CACHE_SIZE", 64);
+
+    /**
+     * How long (in milliseconds) the GTK menus can spend applying queued changes during each GTK main-loop iteration. Larger values
+     * apply large updates faster, but the panel can feel sluggish while doing so.
+     */
+    public static volatile int GTK_DISPATCH_BUDGET_MS = Integer.getInteger(SystemTray.class.getSimpleName() + ".GTK_DISPATCH_BUDGET_MS", 8);
+
+    /**
+     * The maximum size (in bytes) of each on-disk image cache. When it is larger, the least-recently-used images are deleted.
+     */
+    public static volatile long DISK_CACHE_MAX_BYTES = Long.getLong(SystemTray.class.getSimpleName() + ".DISK_CACHE_MAX_BYTES", 32L * 1024L * 1024L);
+
+    /**
+     * The maximum number of images in each on-disk image cache. When there are more, the least-recently-used images are deleted.
+     */
+    public static volatile int DISK_CACHE_MAX_ENTRIES = Integer.getInteger(SystemTray.class.getSimpleName() + ".DISK_CACHE_MAX_ENTRIES", 2000);
+
+    /**
+     * How long (in milliseconds) a menu callback (or any other task on the SystemTray event dispatch) can run before it is reported as
+     * slow, since it is delaying every other click and menu change. Set to 0 to disable. See {@link dorkbox.systemTray.util.EventDispatchWatchdog}
+     */
+    public static volatile long SLOW_CALLBACK_THRESHOLD_MS = Long.getLong(SystemTray.class.getSimpleName() + ".SLOW_CALLBACK_THRESHOLD_MS", 1000L);
+
+    /**
+     * Changes to the menu entries (text, images, etc) are only applied to the native menu just before it is shown, instead of as soon
+     * as they happen. This only applies to the Swing, WindowsNative and GtkStatusIcon tray types, since the others cannot tell when their
+     * menu is shown. See {@link dorkbox.systemTray.util.MenuVisibility}
+     */
+    public static volatile boolean DEFER_HIDDEN_MENU_UPDATES = OS.INSTANCE.getBoolean(SystemTray.class.getSimpleName() + ".DEFER_HIDDEN_MENU_UPDATES", false);
+
+    /**
+     * How long (in milliseconds) the Swing and WindowsNative menus must be unchanged before they are laid out and rendered off-screen,
+     * so that the first time the menu is opened is as fast as every other time. A negative value disables this.
+     */
+    public static volatile int POPUP_WARMUP_DELAY_MS = Integer.getInteger(SystemTray.class.getSimpleName() + ".POPUP_WARMUP_DELAY_MS", 500);
+
     /**
      * Gets the version number.
      */
@@ -151,6 +202,24 @@ class SystemTray {
         return "4.5";
     }
 
+    // the trays that are currently being created, by name
+    private static final ConcurrentHashMap<String, CompletableFuture<SystemTray>> creatingTrays = new ConcurrentHashMap<>();
+
+    // the tray type for this environment. This is only detected again if the settings it was detected with change, or all the trays are removed
+    private static final AtomicReference<DetectedType> detectedType = new AtomicReference<>();
+
+    private static final Object trayFixLock = new Object();
+
+    // re-renders the images after the screen scale changes. This is not the common pool, because the application might need it
+    private static final ThreadPoolExecutor rescaleExecutor;
+    static {
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+        rescaleExecutor = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                                 new NamedThreadFactory("SystemTrayImageRescale", Thread.currentThread().getThreadGroup(),
+                                                                        Thread.NORM_PRIORITY, true));
+        rescaleExecutor.allowCoreThreadTimeOut(true);
+    }
+
     static {
         // Add this project to the updates system, which verifies this class + UUID + version information
         dorkbox.updates.Updates.INSTANCE.add(SystemTray.class, "b35c107332d844559a3f877fcef42a21", getVersion());
@@ -183,13 +252,14 @@ class SystemTray {
      * <p>
      * If this is using the Swing SystemTray and a SecurityManager is installed, the AWTPermission {@code accessSystemTray} must
      * be granted in order to get the {@code SystemTray} instance. Otherwise, this will return null.
+     * <p>
+     * Trays with different names can be created at the same time (from different threads).
      *
      * @param trayName This is the name assigned to the system tray instance. If you create MORE than 1 system tray,
      *                  you must make sure to use different names (or un-predicable things can happen!).
      */
-    @SuppressWarnings({"ConstantConditions", "StatementWithEmptyBody"})
-    public static synchronized
-    SystemTray get(String trayName) {
+    public static
+    SystemTray get(final String trayName) {
         if (AUTO_FIX_INCONSISTENCIES) {
             // we have to make sure to follow the system appearance (if possible)
             System.setProperty("apple.awt.application.appearance", "system");
@@ -235,8 +305,97 @@ class SystemTray {
             return existingTray;
         }
 
+        // trays with different names are created at the same time, but each name is only created once (the others wait for it)
+        CompletableFuture<SystemTray> created = new CompletableFuture<>();
+        CompletableFuture<SystemTray> inProgress = creatingTrays.putIfAbsent(trayName, created);
+        if (inProgress != null) {
+            if (DEBUG) {
+                logger.info("Waiting for tray to be created: " + trayName);
+            }
+            return inProgress.join();
+        }
 
+        SystemTray systemTray = null;
+        AutoDetectTrayType.creationStarted();
+        try {
+            // the tray might have been created after we checked, but before we could claim the name
+            systemTray = AutoDetectTrayType.getInstance(trayName);
+            if (systemTray == null) {
+                systemTray = create(trayName);
+            }
+            return systemTray;
+        } finally {
+            AutoDetectTrayType.creationFinished();
+            created.complete(systemTray);
+            creatingTrays.remove(trayName, created);
+        }
+    }
+
+    private static final
+    class DetectedType {
+        final CompletableFuture<TrayType> trayType = new CompletableFuture<>();
+
+        // the settings once detection has finished (detection can change them), so we know if someone changed them afterwards
+        volatile List<Object> settings = null;
+    }
+
+    /**
+     * @return the settings that decide what tray type is used
+     */
+    private static
+    List<Object> getDetectionSettings() {
+        return Arrays.asList(FORCE_TRAY_TYPE, FORCE_GTK2, PREFER_GTK3, AUTO_FIX_INCONSISTENCIES);
+    }
 
+    /**
+     * The environment (and what tray type to use) is the same for every tray, so it is only detected once (unless the settings are
+     * changed). Everyone else waits for it.
+     *
+     * @return null if the tray cannot be created
+     */
+    private static
+    TrayType getDetectedType(final String trayName) {
+        while (true) {
+            DetectedType detected = detectedType.get();
+            if (detected != null) {
+                List<Object> settings = detected.settings;
+                if (settings == null) {
+                    // still being detected
+                    return detected.trayType.join();
+                }
+                if (settings.equals(getDetectionSettings())) {
+                    return detected.trayType.join();
+                }
+            }
+
+            DetectedType detecting = new DetectedType();
+            if (!detectedType.compareAndSet(detected, detecting)) {
+                continue;
+            }
+
+            TrayType trayType = null;
+            try {
+                trayType = detectType(trayName);
+                return trayType;
+            } finally {
+                detecting.settings = getDetectionSettings();
+                if (trayType == null) {
+                    // so it is detected again the next time (ie: after logging out + in, when an extension was installed)
+                    detectedType.compareAndSet(detecting, null);
+                }
+                detecting.trayType.complete(trayType);
+            }
+        }
+    }
+
+    /**
+     * Fixes the global settings for the current OS/desktop environment, and decides what tray type to use.
+     *
+     * @return null if the tray cannot be created
+     */
+    @SuppressWarnings({"ConstantConditions", "StatementWithEmptyBody"})
+    private static
+    TrayType detectType(final String trayName) {
         boolean isNix = OS.INSTANCE.isLinux() || OS.INSTANCE.isUnix();
         boolean isWindows = OS.INSTANCE.isWindows();
         boolean isMacOsX = OS.INSTANCE.isMacOsX();
@@ -568,7 +727,7 @@ class SystemTray {
                         PREFER_GTK3 = false;
                     } else if (OS.Linux.INSTANCE.isFedora()) {
                         // check the version!
-                        String gnomeVersion = OS.DesktopEnv.INSTANCE.getGnomeVersion();
+                        String gnomeVersion = ExtensionSupport.getGnomeVersion();
                         if (gnomeVersion == null) {
                             // this shouldn't ever happen!
 
@@ -680,15 +839,6 @@ class SystemTray {
                     }
                 }
             }
-
-            if (SystemTray.SWING_UI == null) {
-                if (isNix && trayType == TrayType.Swing) {
-                    SystemTray.SWING_UI = new LinuxSwingUI();
-                }
-                else if (isWindows && (trayType == TrayType.Swing || trayType == TrayType.WindowsNative)) {
-                    SystemTray.SWING_UI = new WindowsSwingUI();
-                }
-            }
         }
 
 
@@ -740,10 +890,17 @@ class SystemTray {
             }
         }
 
+        return trayType;
+    }
 
+    private static
+    SystemTray create(final String trayName) {
+        TrayType trayType = getDetectedType(trayName);
+        if (trayType == null) {
+            return null;
+        }
 
-
-
+        boolean isNix = OS.INSTANCE.isLinux() || OS.INSTANCE.isUnix();
 
         try {
             // at this point, the tray type is what it should be. If there are failures or special cases, all types will fall back to Swing.
@@ -751,7 +908,10 @@ class SystemTray {
             if (isNix) {
                 // linux/unix need access to GTK, so load it up before the tray is loaded!
                 // Swing gets the image size info VIA gtk, so this is important as well.
-                GtkEventDispatch.startGui(FORCE_GTK2, PREFER_GTK3, DEBUG);
+                // GTK can only be started once, so a tray that is created at the same time must wait for it
+                synchronized (trayFixLock) {
+                    GtkEventDispatch.startGui(FORCE_GTK2, PREFER_GTK3, DEBUG);
+                }
                 GtkEventDispatch.waitForEventsToComplete();
 
                 if (DEBUG) {
@@ -793,6 +953,13 @@ class SystemTray {
                 }
             }
 
+            // only the classes for this tray type are loaded (and not the classes for the other tray types)
+            final TrayProvider provider = TrayProvider.get(trayType);
+            if (provider == null) {
+                logger.error("Unable to create tray type: '{}'", trayType);
+                return null;
+            }
+
             if (trayType == TrayType.Swing ||
                 trayType == TrayType.Awt ||
                 trayType == TrayType.Osx ||
@@ -803,28 +970,22 @@ class SystemTray {
                 java.awt.Toolkit.getDefaultToolkit();
             }
 
-            if (AUTO_FIX_INCONSISTENCIES) {
-                // this logic has to be before we create the system Tray, but after AWT/GTK is started (if applicable)
-                if (isWindows) {
-                    // Our default for windows is now a native tray icon (instead of the swing tray icon), but we preserve the use of Swing
-                    // windows hard-codes the image size for AWT/SWING tray types
-                    SystemTrayFixesWindows.fix(trayType);
-                }
-                else if (isMacOsX) {
-                    // Swing on macOS is pretty bland. AWT (with fixes) looks fantastic (and is native)
-                    // AWT on macosx doesn't respond to all buttons (but should)
-                    SystemTrayFixesMacOS.fix(trayType);
-                }
-                else if (isNix) {
-                    // linux/mac doesn't have transparent backgrounds for swing and hard-codes the image size
-                    SystemTrayFixesLinux.fix(trayType);
+            // the fixes + sizes are shared by all the trays, so a tray that is created at the same time must wait for them to finish
+            synchronized (trayFixLock) {
+                if (AUTO_FIX_INCONSISTENCIES && SystemTray.SWING_UI == null) {
+                    SystemTray.SWING_UI = provider.getDefaultSwingUI();
                 }
-            }
 
+                if (AUTO_FIX_INCONSISTENCIES) {
+                    // this logic has to be before we create the system Tray, but after AWT/GTK is started (if applicable)
+                    // Our default for windows is now a native tray icon (instead of the swing tray icon), but we preserve the use of Swing
+                    provider.fixTray();
+                }
 
-            // initialize Tray Image size + Tray Menu Image size
-            // This must be BEFORE the system tray has been created, but after tray problems have been fixed
-            SizeAndScaling.initSizes(trayType);
+                // initialize Tray Image size + Tray Menu Image size
+                // This must be BEFORE the system tray has been created, but after tray problems have been fixed
+                SizeAndScaling.initSizes(trayType);
+            }
 
 
             if (!RenderProvider.isDefault() && SwingUtilities.isEventDispatchThread()) {
@@ -843,13 +1004,14 @@ class SystemTray {
                 // this is thread-safe
                 if (!AutoDetectTrayType.hasOtherTrays()) {
                     EventDispatch.shutdown();
+
+                    // the environment might be different the next time a tray is created (ie: an extension was installed)
+                    detectedType.set(null);
                 }
             };
 
-            // the cache name **MUST** be combined with the currently logged-in user, otherwise permissions get screwed up
-            // when there is more than 1 user logged in at the same time!
-            CacheUtil cache = new CacheUtil(trayName + "Cache" + "_" + System.getProperty("user.name"));
-            ImageResizeUtil imageResizeUtil = new ImageResizeUtil(cache);
+            // the image cache is shared by all the trays, so identical images are only resized + saved once
+            ImageResizeUtil imageResizeUtil = new ImageResizeUtil(SharedImageStore.getCache(trayName));
 
 
             // the "menu" in this case is the ACTUAL menu that shows up in the system tray (the icon + submenu, etc)
@@ -858,21 +1020,18 @@ class SystemTray {
             // javaFX and SWT **CAN NOT** start on the EDT!!
             // linux + GTK/AppIndicator + windows-native menus must not start on the EDT!
             // AWT + Swing + AWT-macOS must be constructed on the EDT however...
-            final Class<? extends Menu> trayClass = AutoDetectTrayType.selectType(trayType);
-
-            if (RenderProvider.isDefault() &&
-                (trayType == TrayType.Swing || trayType == TrayType.Awt || trayType == TrayType.Osx)) {
+            if (RenderProvider.isDefault() && provider.isCreatedOnEdt()) {
                 // have to construct swing stuff inside the swing EDT
                 SwingUtil.INSTANCE.invokeAndWait(()->{
                     try {
-                        reference.set((Tray) trayClass.getConstructors()[0].newInstance(trayName, imageResizeUtil, onRemoveEvent));
+                        reference.set(provider.create(trayName, imageResizeUtil, onRemoveEvent));
                     } catch (Exception e) {
-                        logger.error("Unable to create tray type: '{}'", trayClass.getSimpleName(), e);
+                        logger.error("Unable to create tray type: '{}'", provider.getType(), e);
                     }
                 });
             }
             else {
-                reference.set((Tray) trayClass.getConstructors()[0].newInstance(trayName, imageResizeUtil, onRemoveEvent));
+                reference.set(provider.create(trayName, imageResizeUtil, onRemoveEvent));
             }
 
             // we have a weird circle dependency thing going on!
@@ -889,9 +1048,13 @@ class SystemTray {
                 logger.info("Successfully loaded");
             }
 
-            SystemTray systemTray = new SystemTray(systemTrayMenu, imageResizeUtil);
+            SystemTray systemTray = new SystemTray(systemTrayMenu, provider.getType(), imageResizeUtil);
             AutoDetectTrayType.setInstance(trayName, systemTray);
 
+            // when the screen DPI/scale changes, the images have to be re-rendered at the new size
+            ScaleChangeMonitor.start(trayType);
+            ScaleChangeMonitor.addListener(systemTray.scaleChangeListener);
+
             // we ALWAYS want to add a **JVM** shutdown hook!
             Runnable shutdownRunnable = AutoDetectTrayType.getShutdownHook(trayName);
             Runtime.getRuntime().addShutdownHook(new Thread(shutdownRunnable));
@@ -906,11 +1069,15 @@ class SystemTray {
 
     /** Default name of the application, sometimes shows on tray-icon mouse over. Not used for all OSes, but mostly for Linux */
     private final Tray menu;
+    private final TrayType trayType;
     private final ImageResizeUtil imageResizeUtil;
 
+    private final Runnable scaleChangeListener = this::rescaleImages;
+
     private
-    SystemTray(final Tray systemTrayMenu, final ImageResizeUtil imageResizeUtil) {
+    SystemTray(final Tray systemTrayMenu, final TrayType trayType, final ImageResizeUtil imageResizeUtil) {
         this.menu = systemTrayMenu;
+        this.trayType = trayType;
         this.imageResizeUtil = imageResizeUtil;
     }
 
@@ -920,6 +1087,9 @@ class SystemTray {
      */
     public
     void shutdown() {
+        stopAnimation();
+        ScaleChangeMonitor.removeListener(scaleChangeListener);
+
         // this will shut down and do what it needs to. The onRemoveEvent cleans up.
         menu.remove();
     }
@@ -946,6 +1116,79 @@ class SystemTray {
         });
     }
 
+    /**
+     * Shuts-down the SystemTray as fast as possible, for example when the application is exiting. The changes to the menu that have not
+     * been applied yet are discarded (instead of being applied to a menu that is about to be removed), then the tray icon and menu are
+     * removed. After calling this method, you MUST call `get()` or `get(name)` again to obtain a new SystemTray instance.
+     * <p>
+     * The pending changes are only discarded if this is the last tray, since all the trays share the same event dispatch.
+     *
+     * @param deadline how long to wait for the shutdown to finish
+     *
+     * @return what was discarded, and how long each part of the shutdown took
+     */
+    public
+    ShutdownReport shutdownNow(final Duration deadline) {
+        final long start = System.nanoTime();
+        final long deadlineNanos = start + deadline.toNanos();
+
+        stopAnimation();
+        ScaleChangeMonitor.removeListener(scaleChangeListener);
+
+        final long droppedEvents = EventDispatch.getDiscardedCount();
+        final long droppedUpdates = MenuVisibility.getDiscardedCount();
+
+        // a tray that is being created at the same time must not have its changes discarded
+        final boolean isLastTray = AutoDetectTrayType.runIfLastTray(()->{
+            EventDispatch.discardPending();
+            MenuVisibility.discardPending();
+        });
+
+        final long cancelled = System.nanoTime();
+
+        // removing the native tray can block (waiting on the native dispatch), so it runs on a different thread in order to keep the deadline
+        final CountDownLatch removed = new CountDownLatch(1);
+        Thread thread = new Thread(()->{
+            try {
+                menu.remove();
+            } finally {
+                removed.countDown();
+            }
+        });
+        thread.setName("SystemTrayShutdown");
+        thread.setDaemon(true);
+        thread.start();
+
+        boolean completed = false;
+        try {
+            completed = removed.await(Math.max(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ignored) {
+        }
+
+        final long tornDown = System.nanoTime();
+
+        if (completed && isLastTray) {
+            // the last tray shuts down the event dispatch when it is removed
+            completed = EventDispatch.waitForShutdown(TimeUnit.NANOSECONDS.toMillis(deadlineNanos - tornDown));
+        }
+
+        final long finished = System.nanoTime();
+
+        ShutdownReport report = new ShutdownReport(EventDispatch.getDiscardedCount() - droppedEvents,
+                                                   MenuVisibility.getDiscardedCount() - droppedUpdates,
+                                                   cancelled - start, tornDown - cancelled, finished - tornDown,
+                                                   completed);
+
+        if (!completed) {
+            logger.warn("Unable to shutdown the SystemTray before the deadline: {}", report);
+        }
+        else if (DEBUG) {
+            logger.debug("Shutdown: {}", report);
+        }
+
+        return report;
+    }
+
     /**
      * Gets the 'status' string assigned to the system tray
      */
@@ -973,6 +1216,35 @@ class SystemTray {
         return menu;
     }
 
+    /**
+     * Saves what the tray icon and menu currently look like, so that they can be shown immediately the next time the application starts,
+     * with {@link #restoreSnapshot(Path)}.
+     * <p>
+     * The images are saved as the (resized) images in the image cache, so the cache must not be cleared between saving and restoring.
+     *
+     * @param snapshotFile where to save the snapshot
+     */
+    public
+    void saveSnapshot(final Path snapshotFile) throws IOException {
+        MenuSnapshot.save(menu, snapshotFile);
+    }
+
+    /**
+     * Shows the tray icon and menu that were saved with {@link #saveSnapshot(Path)}, before the application has loaded what it needs
+     * to create the real menu. Until then, the menu entries do nothing when clicked.
+     * <p>
+     * The real menu should be created with {@link Menu#reconcile(List)}, so that only the entries that changed since the snapshot are
+     * changed.
+     *
+     * @param snapshotFile the snapshot to restore
+     *
+     * @return false if there is no snapshot, or if it cannot be read
+     */
+    public
+    boolean restoreSnapshot(final Path snapshotFile) {
+        return MenuSnapshot.restore(this, menu, snapshotFile);
+    }
+
     /**
      * Converts the specified JMenu into a compatible SystemTray menu, using the JMenu icon as the image for the SystemTray. The currently
      * supported menu items are `JMenu`, `JCheckBoxMenuItem`, `JMenuItem`, and `JSeparator`. Because this is a conversion, the JMenu
@@ -1047,7 +1319,8 @@ class SystemTray {
             throw new NullPointerException("imageFile");
         }
 
-        menu.setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imageFile));
+        stopAnimation();
+        menu.setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imageFile), imageFile);
     }
 
     /**
@@ -1063,7 +1336,8 @@ class SystemTray {
             throw new NullPointerException("imagePath");
         }
 
-        menu.setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imagePath));
+        stopAnimation();
+        menu.setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imagePath), imagePath);
         return menu;
     }
 
@@ -1080,7 +1354,8 @@ class SystemTray {
             throw new NullPointerException("imageUrl");
         }
 
-        menu.setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imageUrl));
+        stopAnimation();
+        menu.setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imageUrl), imageUrl);
         return menu;
     }
 
@@ -1097,7 +1372,8 @@ class SystemTray {
             throw new NullPointerException("imageStream");
         }
 
-        menu.setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imageStream));
+        stopAnimation();
+        menu.setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imageStream), imageStream);
         return menu;
     }
 
@@ -1114,7 +1390,8 @@ class SystemTray {
             throw new NullPointerException("image");
         }
 
-        menu.setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, image));
+        stopAnimation();
+        menu.setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, image), image);
         return menu;
     }
 
@@ -1131,10 +1408,143 @@ class SystemTray {
             throw new NullPointerException("image");
         }
 
-        menu.setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imageStream));
+        stopAnimation();
+        menu.setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imageStream), imageStream);
         return menu;
     }
 
+    /**
+     * Animates the tray icon, by cycling through the specified frames. Any image (or animation) set afterward replaces this animation.
+     * <p>
+     * All the frames are resized (if AUTO_SIZE) and cached once, before the animation starts. While the tray is disabled, the
+     * animation is paused.
+     *
+     * @param frames the images to use, which can be a File, String (path), URL, InputStream, Image, or ImageInputStream
+     * @param frameTime how long each frame is shown
+     */
+    public
+    Menu setAnimation(final List<?> frames, final Duration frameTime) {
+        if (frames == null) {
+            throw new NullPointerException("frames");
+        }
+        if (frameTime == null) {
+            throw new NullPointerException("frameTime");
+        }
+        if (frames.isEmpty()) {
+            throw new IllegalArgumentException("At least one frame is required for an animation.");
+        }
+        if (frameTime.isNegative() || frameTime.isZero()) {
+            throw new IllegalArgumentException("The frame time must be positive.");
+        }
+
+        List<File> frameFiles = new ArrayList<>(frames.size());
+        try {
+            for (Object frame : frames) {
+                frameFiles.add(getAnimationFrame(frame));
+            }
+        } catch (RuntimeException e) {
+            for (File frameFile : frameFiles) {
+                SharedImageStore.release(frameFile);
+            }
+            throw e;
+        }
+
+        menu.startAnimation(new TrayAnimation(menu, frameFiles), frameTime.toNanos());
+        return menu;
+    }
+
+    private
+    File getAnimationFrame(final Object frame) {
+        File file;
+        if (frame instanceof File) {
+            file = imageResizeUtil.shouldResizeOrCache(true, (File) frame);
+        }
+        else if (frame instanceof String) {
+            file = imageResizeUtil.shouldResizeOrCache(true, (String) frame);
+        }
+        else if (frame instanceof URL) {
+            file = imageResizeUtil.shouldResizeOrCache(true, (URL) frame);
+        }
+        else if (frame instanceof InputStream) {
+            file = imageResizeUtil.shouldResizeOrCache(true, (InputStream) frame);
+        }
+        else if (frame instanceof Image) {
+            file = imageResizeUtil.shouldResizeOrCache(true, (Image) frame);
+        }
+        else if (frame instanceof ImageInputStream) {
+            file = imageResizeUtil.shouldResizeOrCache(true, (ImageInputStream) frame);
+        }
+        else {
+            throw new IllegalArgumentException("Unsupported animation frame type: " + (frame == null ? "null" : frame.getClass()));
+        }
+
+        return file;
+    }
+
+    /**
+     * Stops the tray icon animation (if there is one). The current frame remains as the tray image.
+     */
+    public
+    void stopAnimation() {
+        menu.stopAnimation();
+    }
+
+    /**
+     * Re-renders the tray and menu images at the current image size. The images are rendered in parallel (off of the event dispatch),
+     * and then all the peers are updated at once.
+     */
+    private
+    void rescaleImages() {
+        List<MenuItem> menuItems = new ArrayList<>();
+        collectMenuItems(menu, menuItems);
+
+        List<CompletableFuture<Runnable>> futures = new ArrayList<>(menuItems.size());
+        for (MenuItem menuItem : menuItems) {
+            final boolean isTrayImage = menuItem == menu;
+            futures.add(CompletableFuture.supplyAsync(()->menuItem.rescaleImage(isTrayImage), rescaleExecutor));
+        }
+
+        // this waits on the scale-change thread, so that if the scale changes again, those images are not applied before these are
+        List<Runnable> updates = new ArrayList<>(futures.size());
+        for (CompletableFuture<Runnable> future : futures) {
+            try {
+                Runnable update = future.join();
+                if (update != null) {
+                    updates.add(update);
+                }
+            } catch (Exception e) {
+                logger.error("Error re-rendering image after the screen scale changed.", e);
+            }
+        }
+
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        EventDispatch.runLater(()->{
+            for (Runnable update : updates) {
+                try {
+                    update.run();
+                } catch (Exception e) {
+                    logger.error("Error re-rendering image after the screen scale changed.", e);
+                }
+            }
+        });
+    }
+
+    private static
+    void collectMenuItems(final MenuItem menuItem, final List<MenuItem> menuItems) {
+        menuItems.add(menuItem);
+
+        if (menuItem instanceof Menu) {
+            for (Entry entry : ((Menu) menuItem).getEntries()) {
+                if (entry instanceof MenuItem) {
+                    collectMenuItems((MenuItem) entry, menuItems);
+                }
+            }
+        }
+    }
+
     /**
      * @return the system tray image size, accounting for OS and theme differences
      */
@@ -1159,7 +1569,7 @@ class SystemTray {
      */
     public
     TrayType getType() {
-        return fromClass(menu.getClass());
+        return trayType;
     }
 
     /**
@@ -1169,6 +1579,9 @@ class SystemTray {
      */
     public
     void remove() {
+        stopAnimation();
+        ScaleChangeMonitor.removeListener(scaleChangeListener);
+
         // we must recreate the menu via init() if we call get() after remove()! (onRemoveEvent does this)
         menu.remove();
     }
@@ -19,6 +19,7 @@ import java.awt.Image;
 import java.io.File;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.imageio.stream.ImageInputStream;
 
@@ -35,6 +36,9 @@ class Tray extends Menu {
 
     private volatile String statusText;
 
+    // the currently running animation (if any). Any image that is set afterward replaces it
+    private final AtomicReference<TrayAnimation> animation = new AtomicReference<>();
+
     public
     Tray(final Runnable onRemoveEvent) {
         super();
@@ -100,7 +104,8 @@ class Tray extends Menu {
     @Override
     public
     void setImage(final File imageFile) {
-        setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imageFile));
+        stopAnimation();
+        setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imageFile), imageFile);
     }
 
     /**
@@ -113,7 +118,8 @@ class Tray extends Menu {
     @Override
     public
     void setImage(final String imagePath) {
-        setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imagePath));
+        stopAnimation();
+        setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imagePath), imagePath);
     }
 
     /**
@@ -126,7 +132,8 @@ class Tray extends Menu {
     @Override
     public
     void setImage(final URL imageUrl) {
-        setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imageUrl));
+        stopAnimation();
+        setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imageUrl), imageUrl);
     }
 
     /**
@@ -139,7 +146,8 @@ class Tray extends Menu {
     @Override
     public
     void setImage(final InputStream imageStream) {
-        setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imageStream));
+        stopAnimation();
+        setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imageStream), imageStream);
     }
 
     /**
@@ -152,7 +160,8 @@ class Tray extends Menu {
     @Override
     public
     void setImage(final Image image) {
-        setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, image));
+        stopAnimation();
+        setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, image), image);
     }
 
     /**
@@ -165,7 +174,30 @@ class Tray extends Menu {
     @Override
     public
     void setImage(final ImageInputStream imageStream) {
-        setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imageStream));
+        stopAnimation();
+        setImageFromTray(imageResizeUtil.shouldResizeOrCache(true, imageStream), imageStream);
+    }
+
+    /**
+     * Starts the animation, and stops the previous one (if there is one)
+     */
+    void startAnimation(final TrayAnimation newAnimation, final long frameTimeNanos) {
+        TrayAnimation previous = animation.getAndSet(newAnimation);
+        if (previous != null) {
+            previous.stop();
+        }
+
+        newAnimation.start(frameTimeNanos);
+    }
+
+    /**
+     * Stops the tray icon animation (if there is one). The current frame remains as the tray image.
+     */
+    void stopAnimation() {
+        TrayAnimation previous = animation.getAndSet(null);
+        if (previous != null) {
+            previous.stop();
+        }
     }
 
     /**
@@ -184,6 +216,9 @@ class Tray extends Menu {
             peer = null;
         }
 
+        // the root menu is never removed by super.remove(), so the tray image has to be released here
+        releaseImage();
+
 
         // we have to tell our parent that we have been removed.
         // This is HERE instead of inside the tray implementations because of visibility requirements.
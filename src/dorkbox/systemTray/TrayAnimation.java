@@ -0,0 +1,137 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import dorkbox.systemTray.util.SharedImageStore;
+import dorkbox.util.NamedThreadFactory;
+
+/**
+ * Cycles the tray icon through a set of pre-resized (and cached) image frames.
+ * <p>
+ * All animations share a single scheduler thread, and frames are skipped (not queued) while the tray is disabled.
+ */
+final
+class TrayAnimation implements Runnable {
+    // shared by all tray animations. Only accessed while synchronized
+    private static ScheduledThreadPoolExecutor scheduler = null;
+    private static int activeAnimations = 0;
+
+    private static synchronized
+    ScheduledExecutorService acquireScheduler() {
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("SystemTrayAnimation",
+                                                                                  Thread.currentThread().getThreadGroup(),
+                                                                                  Thread.NORM_PRIORITY, true));
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+
+        activeAnimations++;
+        return scheduler;
+    }
+
+    private static synchronized
+    void releaseScheduler() {
+        activeAnimations--;
+
+        // there is no reason to keep the thread around if nothing is animating
+        if (activeAnimations <= 0 && scheduler != null) {
+            activeAnimations = 0;
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+
+    private final Tray tray;
+    private final File[] frames;
+
+    // these are only accessed while synchronized
+    private int frameIndex = 0;
+    private ScheduledFuture<?> future;
+    private boolean stopped = false;
+
+    /**
+     * @param frames the resized + cached image files. The first frame is shown immediately. The animation takes over the references to
+     *               them (see {@link SharedImageStore}), and releases them when it is stopped.
+     */
+    TrayAnimation(final Tray tray, final List<File> frames) {
+        this.tray = tray;
+        this.frames = frames.toArray(new File[0]);
+    }
+
+    synchronized
+    void start(final long frameTimeNanos) {
+        // this animation was replaced (and stopped) before it could start
+        if (stopped) {
+            return;
+        }
+
+        tray.setImageFromTray(SharedImageStore.acquire(frames[0]));
+
+        if (frames.length > 1) {
+            future = acquireScheduler().scheduleAtFixedRate(this, frameTimeNanos, frameTimeNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    synchronized
+    void stop() {
+        if (stopped) {
+            return;
+        }
+        stopped = true;
+
+        if (future != null) {
+            future.cancel(false);
+            future = null;
+            releaseScheduler();
+        }
+
+        // the frame that is currently displayed is also referenced by the tray
+        for (File frame : frames) {
+            SharedImageStore.release(frame);
+        }
+    }
+
+    // synchronized so that once stop() returns, a frame can no longer replace a newly set image
+    @Override
+    public synchronized
+    void run() {
+        if (stopped) {
+            return;
+        }
+
+        // while disabled (hidden), there is no point in changing the image -- so we just pause where we are
+        if (!tray.getEnabled()) {
+            return;
+        }
+
+        frameIndex = (frameIndex + 1) % frames.length;
+
+        try {
+            tray.setImageFromTray(SharedImageStore.acquire(frames[frameIndex]));
+        } catch (Throwable e) {
+            // if an exception escapes, the scheduler will silently stop running this animation
+            SystemTray.logger.error("Error setting the tray animation frame.", e);
+        }
+    }
+}
@@ -0,0 +1,733 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.gnomeShell;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dorkbox.systemTray.SystemTray;
+
+/**
+ * A small, pure-java client for the D-Bus session bus, so that we can talk to gnome-shell without spawning 'gdbus'.
+ * <p>
+ * This only supports what we need: SASL EXTERNAL authentication over a unix socket, method calls (with basic-type arguments), and
+ * decoding of the replies. Replies are asynchronous, and are read by a single daemon thread per connection.
+ * <p>
+ * See: https://dbus.freedesktop.org/doc/dbus-specification.html
+ */
+final
+class DBusSession implements Closeable {
+    private static final byte METHOD_CALL = 1;
+    private static final byte METHOD_RETURN = 2;
+    private static final byte ERROR = 3;
+
+    private static final byte FIELD_PATH = 1;
+    private static final byte FIELD_INTERFACE = 2;
+    private static final byte FIELD_MEMBER = 3;
+    private static final byte FIELD_ERROR_NAME = 4;
+    private static final byte FIELD_REPLY_SERIAL = 5;
+    private static final byte FIELD_DESTINATION = 6;
+    private static final byte FIELD_SIGNATURE = 8;
+
+    // the spec limits messages to 128MB, but nothing we do comes close to that
+    private static final int MAX_MESSAGE_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Opens a session bus connection, calls the method and waits for the reply.
+     *
+     * @return the reply values, or null if there was a problem (the problem is logged in debug mode)
+     */
+    static
+    Object[] callSession(final long timeoutMillis,
+                         final String destination, final String path, final String iface, final String member,
+                         final String signature, final Object... args) {
+
+        try (DBusSession session = DBusSession.openSession(timeoutMillis)) {
+            return session.call(destination, path, iface, member, signature, args)
+                          .get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (SystemTray.DEBUG) {
+                SystemTray.logger.debug("Timed out calling D-Bus method {}.{}", iface, member);
+            }
+        } catch (ExecutionException e) {
+            if (SystemTray.DEBUG) {
+                SystemTray.logger.debug("Error calling D-Bus method {}.{}", iface, member, e.getCause());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            // this also catches problems loading libc
+            if (SystemTray.DEBUG) {
+                SystemTray.logger.debug("Unable to use the D-Bus session bus", e);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Connects to the session bus, authenticates, and registers this connection with the bus.
+     */
+    static
+    DBusSession openSession(final long timeoutMillis) throws IOException {
+        UnixSocket socket = connect(System.getenv("DBUS_SESSION_BUS_ADDRESS"));
+
+        DBusSession session = new DBusSession(socket);
+        try {
+            // the bus might never answer, so authentication must not block longer than the rest of the connection would
+            socket.setReadTimeout(Math.max(1L, timeoutMillis));
+            session.authenticate();
+            socket.setReadTimeout(0L);
+
+            session.start();
+
+            // the bus will not route anything for us until we say hello
+            Object[] reply = session.call("org.freedesktop.DBus", "/org/freedesktop/DBus", "org.freedesktop.DBus", "Hello", "")
+                                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (SystemTray.DEBUG) {
+                SystemTray.logger.debug("Connected to the D-Bus session bus as {}", reply.length > 0 ? reply[0] : "");
+            }
+            return session;
+        } catch (InterruptedException e) {
+            session.close();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while connecting to the D-Bus session bus");
+        } catch (ExecutionException | TimeoutException e) {
+            session.close();
+            throw new IOException("Unable to register with the D-Bus session bus", e);
+        } catch (IOException | RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+
+    private static
+    UnixSocket connect(final String busAddress) throws IOException {
+        if (busAddress != null) {
+            IOException lastException = null;
+
+            // multiple addresses are separated by ';', and are tried in order
+            for (String address : busAddress.split(";")) {
+                if (!address.startsWith("unix:")) {
+                    continue;
+                }
+
+                Map<String, String> keys = new LinkedHashMap<>();
+                for (String keyValue : address.substring(5).split(",")) {
+                    int index = keyValue.indexOf('=');
+                    if (index > 0) {
+                        keys.put(keyValue.substring(0, index), unescape(keyValue.substring(index + 1)));
+                    }
+                }
+
+                try {
+                    if (keys.containsKey("path")) {
+                        return new UnixSocket(keys.get("path"), false);
+                    }
+                    if (keys.containsKey("abstract")) {
+                        return new UnixSocket(keys.get("abstract"), true);
+                    }
+                } catch (IOException e) {
+                    lastException = e;
+                }
+            }
+
+            if (lastException != null) {
+                throw lastException;
+            }
+        }
+
+        // the default location for systemd based systems
+        String runtimeDir = System.getenv("XDG_RUNTIME_DIR");
+        if (runtimeDir == null || runtimeDir.isEmpty()) {
+            runtimeDir = "/run/user/" + UnixSocket.getUid();
+        }
+
+        File bus = new File(runtimeDir, "bus");
+        if (!bus.exists()) {
+            throw new IOException("Unable to determine the D-Bus session bus address");
+        }
+
+        return new UnixSocket(bus.getAbsolutePath(), false);
+    }
+
+    private static
+    String unescape(final String value) {
+        try {
+            // D-Bus addresses use %XX escapes, but a '+' is NOT a space
+            return URLDecoder.decode(value.replace("+", "%2B"), "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return value;
+        }
+    }
+
+
+
+    private final UnixSocket socket;
+    private final AtomicInteger serial = new AtomicInteger(0);
+    private final Map<Integer, CompletableFuture<Object[]>> pendingReplies = new ConcurrentHashMap<>();
+
+    private volatile IOException failure = null;
+
+    private
+    DBusSession(final UnixSocket socket) {
+        this.socket = socket;
+    }
+
+    private
+    void authenticate() throws IOException {
+        // the credentials are sent as the uid (as a string), hex encoded
+        byte[] uid = Integer.toString(UnixSocket.getUid()).getBytes(StandardCharsets.US_ASCII);
+        StringBuilder hexUid = new StringBuilder();
+        for (byte b : uid) {
+            hexUid.append(String.format("%02x", b));
+        }
+
+        // the first byte must be a NUL byte
+        socket.write(new byte[] {0});
+        socket.write(("AUTH EXTERNAL " + hexUid + "\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        String response = socket.readLine();
+        if (!response.startsWith("OK ")) {
+            throw new IOException("D-Bus authentication failed: " + response);
+        }
+
+        socket.write("BEGIN\r\n".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private
+    void start() {
+        Thread thread = new Thread(this::readMessages, "SystemTray D-Bus");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Calls a method. The arguments can only be basic types (ie: no arrays, structs or variants)
+     *
+     * @return a future that completes with the reply values, or completes exceptionally with the D-Bus error
+     */
+    CompletableFuture<Object[]> call(final String destination, final String path, final String iface, final String member,
+                                     final String signature, final Object... args) {
+
+        final CompletableFuture<Object[]> future = new CompletableFuture<>();
+
+        int serial = this.serial.incrementAndGet();
+        if (serial == 0) {
+            // 0 is not a valid serial
+            serial = this.serial.incrementAndGet();
+        }
+
+        try {
+            byte[] message = createMethodCall(serial, destination, path, iface, member, signature, args);
+
+            pendingReplies.put(serial, future);
+
+            IOException failure = this.failure;
+            if (failure != null) {
+                throw failure;
+            }
+
+            socket.write(message);
+        } catch (IOException | RuntimeException e) {
+            pendingReplies.remove(serial);
+            future.completeExceptionally(e);
+        }
+
+        // if the caller gives up (or times out), we don't want to keep the future around
+        final int finalSerial = serial;
+        future.whenComplete((result, throwable)->pendingReplies.remove(finalSerial));
+
+        return future;
+    }
+
+    @Override
+    public
+    void close() {
+        socket.close();
+        failPending(new IOException("Connection closed"));
+    }
+
+    private
+    void failPending(final IOException exception) {
+        failure = exception;
+
+        Iterator<CompletableFuture<Object[]>> iterator = pendingReplies.values().iterator();
+        while (iterator.hasNext()) {
+            CompletableFuture<Object[]> future = iterator.next();
+            iterator.remove();
+            future.completeExceptionally(exception);
+        }
+    }
+
+    private
+    void readMessages() {
+        byte[] fixedHeader = new byte[16];
+
+        try {
+            while (true) {
+                socket.readFully(fixedHeader, fixedHeader.length);
+
+                ByteOrder order = fixedHeader[0] == 'B' ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+                ByteBuffer fixed = ByteBuffer.wrap(fixedHeader).order(order);
+
+                byte type = fixed.get(1);
+                int bodyLength = fixed.getInt(4);
+                int fieldsLength = fixed.getInt(12);
+
+                // the header fields are padded to 8 bytes
+                int headerLength = align(16 + fieldsLength, 8);
+                if (bodyLength < 0 || fieldsLength < 0 || (long) headerLength + bodyLength > MAX_MESSAGE_SIZE) {
+                    throw new IOException("Invalid D-Bus message size");
+                }
+
+                byte[] message = new byte[headerLength + bodyLength];
+                System.arraycopy(fixedHeader, 0, message, 0, fixedHeader.length);
+
+                byte[] remaining = new byte[message.length - fixedHeader.length];
+                socket.readFully(remaining, remaining.length);
+                System.arraycopy(remaining, 0, message, fixedHeader.length, remaining.length);
+
+                if (type != METHOD_RETURN && type != ERROR) {
+                    // we don't care about signals, or method calls to us
+                    continue;
+                }
+
+                Reader header = new Reader(ByteBuffer.wrap(message, 0, headerLength).slice().order(order));
+                header.position(12);
+
+                Integer replySerial = null;
+                String errorName = null;
+                String signature = "";
+
+                @SuppressWarnings("unchecked")
+                List<Object> fields = (List<Object>) header.read("a(yv)");
+                for (Object field : fields) {
+                    Object[] struct = (Object[]) field;
+                    byte code = (Byte) struct[0];
+
+                    if (code == FIELD_REPLY_SERIAL) {
+                        replySerial = (Integer) struct[1];
+                    }
+                    else if (code == FIELD_ERROR_NAME) {
+                        errorName = (String) struct[1];
+                    }
+                    else if (code == FIELD_SIGNATURE) {
+                        signature = (String) struct[1];
+                    }
+                }
+
+                if (replySerial == null) {
+                    continue;
+                }
+
+                CompletableFuture<Object[]> future = pendingReplies.remove(replySerial);
+                if (future == null) {
+                    // the caller already gave up
+                    continue;
+                }
+
+                try {
+                    Reader body = new Reader(ByteBuffer.wrap(message, headerLength, bodyLength).slice().order(order));
+                    Object[] values = body.readAll(signature);
+
+                    if (type == ERROR) {
+                        String text = values.length > 0 && values[0] instanceof String ? (String) values[0] : "";
+                        future.completeExceptionally(new IOException(errorName + ": " + text));
+                    } else {
+                        future.complete(values);
+                    }
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(new IOException("Unable to decode D-Bus reply", e));
+                }
+            }
+        } catch (IOException e) {
+            failPending(e);
+        } catch (RuntimeException e) {
+            failPending(new IOException("Invalid D-Bus message", e));
+            socket.close();
+        }
+    }
+
+    private static
+    byte[] createMethodCall(final int serial,
+                            final String destination, final String path, final String iface, final String member,
+                            final String signature, final Object[] args) {
+
+        Writer body = new Writer();
+        int argIndex = 0;
+        for (int i = 0; i < signature.length(); i++) {
+            if (argIndex >= args.length) {
+                throw new IllegalArgumentException("Not enough arguments for signature " + signature);
+            }
+            body.writeBasic(signature.charAt(i), args[argIndex++]);
+        }
+
+        Writer header = new Writer();
+        header.writeByte((byte) 'l');  // we always send little endian
+        header.writeByte(METHOD_CALL);
+        header.writeByte((byte) 0);    // flags
+        header.writeByte((byte) 1);    // protocol version
+        header.writeInt(body.size());
+        header.writeInt(serial);
+
+        // array of struct(byte, variant)
+        int arrayLengthPosition = header.size();
+        header.writeInt(0);
+        header.align(8);
+        int arrayStart = header.size();
+
+        header.writeField(FIELD_PATH, 'o', path);
+        header.writeField(FIELD_INTERFACE, 's', iface);
+        header.writeField(FIELD_MEMBER, 's', member);
+        header.writeField(FIELD_DESTINATION, 's', destination);
+        if (!signature.isEmpty()) {
+            header.writeField(FIELD_SIGNATURE, 'g', signature);
+        }
+
+        header.putInt(arrayLengthPosition, header.size() - arrayStart);
+        header.align(8);
+
+        byte[] message = Arrays.copyOf(header.bytes, header.size() + body.size());
+        System.arraycopy(body.bytes, 0, message, header.size(), body.size());
+        return message;
+    }
+
+    static
+    int align(final int position, final int alignment) {
+        return (position + alignment - 1) & -alignment;
+    }
+
+    static
+    int alignment(final char type) {
+        switch (type) {
+            case 'y':
+            case 'g':
+            case 'v':
+                return 1;
+            case 'n':
+            case 'q':
+                return 2;
+            case 'x':
+            case 't':
+            case 'd':
+            case '(':
+            case '{':
+                return 8;
+            default:
+                // b i u h s o a
+                return 4;
+        }
+    }
+
+    /**
+     * Marshals values in little endian. Alignment is relative to the start of the buffer.
+     */
+    private static final
+    class Writer {
+        byte[] bytes = new byte[256];
+        private int size = 0;
+
+        int size() {
+            return size;
+        }
+
+        private
+        void ensure(final int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        void align(final int alignment) {
+            int aligned = DBusSession.align(size, alignment);
+            ensure(aligned - size);
+            size = aligned;  // the array is already zero filled
+        }
+
+        void writeByte(final byte value) {
+            ensure(1);
+            bytes[size++] = value;
+        }
+
+        void writeShort(final short value) {
+            align(2);
+            writeByte((byte) value);
+            writeByte((byte) (value >> 8));
+        }
+
+        void writeInt(final int value) {
+            align(4);
+            ensure(4);
+            putInt(size, value);
+            size += 4;
+        }
+
+        void putInt(final int position, final int value) {
+            bytes[position] = (byte) value;
+            bytes[position + 1] = (byte) (value >> 8);
+            bytes[position + 2] = (byte) (value >> 16);
+            bytes[position + 3] = (byte) (value >> 24);
+        }
+
+        void writeLong(final long value) {
+            align(8);
+            writeInt((int) value);
+            writeInt((int) (value >> 32));
+        }
+
+        void writeString(final String value) {
+            byte[] string = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(string.length);
+            ensure(string.length + 1);
+            System.arraycopy(string, 0, bytes, size, string.length);
+            size += string.length + 1;  // NUL terminated
+        }
+
+        void writeSignature(final String value) {
+            byte[] string = value.getBytes(StandardCharsets.US_ASCII);
+            writeByte((byte) string.length);
+            ensure(string.length + 1);
+            System.arraycopy(string, 0, bytes, size, string.length);
+            size += string.length + 1;  // NUL terminated
+        }
+
+        void writeField(final byte code, final char type, final String value) {
+            align(8);
+            writeByte(code);
+            writeSignature(String.valueOf(type));
+            writeBasic(type, value);
+        }
+
+        void writeBasic(final char type, final Object value) {
+            switch (type) {
+                case 'y':
+                    writeByte(((Number) value).byteValue());
+                    break;
+                case 'b':
+                    writeInt(((Boolean) value) ? 1 : 0);
+                    break;
+                case 'n':
+                case 'q':
+                    writeShort(((Number) value).shortValue());
+                    break;
+                case 'i':
+                case 'u':
+                    writeInt(((Number) value).intValue());
+                    break;
+                case 'x':
+                case 't':
+                    writeLong(((Number) value).longValue());
+                    break;
+                case 'd':
+                    writeLong(Double.doubleToRawLongBits(((Number) value).doubleValue()));
+                    break;
+                case 's':
+                case 'o':
+                    writeString((String) value);
+                    break;
+                case 'g':
+                    writeSignature((String) value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported D-Bus argument type: " + type);
+            }
+        }
+    }
+
+    /**
+     * Un-marshals values. Alignment is relative to the start of the buffer (which is always 8-byte aligned in the message)
+     * <p>
+     * Arrays are returned as a List (or a Map for dictionaries), structs as Object[], and variants as their contained value.
+     */
+    private static final
+    class Reader {
+        private final ByteBuffer buffer;
+        private int position = 0;
+
+        Reader(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        void position(final int position) {
+            this.position = position;
+        }
+
+        Object[] readAll(final String signature) {
+            List<Object> values = new ArrayList<>();
+
+            int index = 0;
+            while (index < signature.length()) {
+                int end = typeEnd(signature, index);
+                values.add(read(signature.substring(index, end)));
+                index = end;
+            }
+
+            return values.toArray();
+        }
+
+        private
+        void align(final int alignment) {
+            position = DBusSession.align(position, alignment);
+        }
+
+        /**
+         * Reads a single complete type
+         */
+        Object read(final String type) {
+            char code = type.charAt(0);
+            align(alignment(code));
+
+            switch (code) {
+                case 'y':
+                    return buffer.get(position++);
+                case 'b':
+                    return readInt() != 0;
+                case 'n': {
+                    short value = buffer.getShort(position);
+                    position += 2;
+                    return value;
+                }
+                case 'q': {
+                    int value = buffer.getShort(position) & 0xFFFF;
+                    position += 2;
+                    return value;
+                }
+                case 'i':
+                case 'u':
+                case 'h':
+                    return readInt();
+                case 'x':
+                case 't': {
+                    long value = buffer.getLong(position);
+                    position += 8;
+                    return value;
+                }
+                case 'd': {
+                    double value = buffer.getDouble(position);
+                    position += 8;
+                    return value;
+                }
+                case 's':
+                case 'o': {
+                    int length = readInt();
+                    String value = readString(length);
+                    position++; // NUL
+                    return value;
+                }
+                case 'g': {
+                    int length = buffer.get(position++) & 0xFF;
+                    String value = readString(length);
+                    position++; // NUL
+                    return value;
+                }
+                case 'v': {
+                    String signature = (String) read("g");
+                    return read(signature);
+                }
+                case '(': {
+                    return readAll(type.substring(1, type.length() - 1));
+                }
+                case '{': {
+                    return readAll(type.substring(1, type.length() - 1));
+                }
+                case 'a': {
+                    int length = readInt();
+                    String elementType = type.substring(1);
+
+                    // the padding to the first element is NOT included in the length, but is always present
+                    align(alignment(elementType.charAt(0)));
+                    int end = position + length;
+
+                    if (elementType.charAt(0) == '{') {
+                        Map<Object, Object> map = new LinkedHashMap<>();
+                        while (position < end) {
+                            Object[] entry = (Object[]) read(elementType);
+                            map.put(entry[0], entry[1]);
+                        }
+                        return map;
+                    }
+
+                    List<Object> list = new ArrayList<>();
+                    while (position < end) {
+                        list.add(read(elementType));
+                    }
+                    return list;
+                }
+                default:
+                    throw new IllegalArgumentException("Unsupported D-Bus type: " + type);
+            }
+        }
+
+        private
+        int readInt() {
+            int value = buffer.getInt(position);
+            position += 4;
+            return value;
+        }
+
+        private
+        String readString(final int length) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(position + i);
+            }
+            position += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return the index after the single complete type that starts at index
+         */
+        private static
+        int typeEnd(final String signature, final int index) {
+            char code = signature.charAt(index);
+
+            if (code == 'a') {
+                return typeEnd(signature, index + 1);
+            }
+
+            if (code == '(' || code == '{') {
+                char close = code == '(' ? ')' : '}';
+                int next = index + 1;
+                while (signature.charAt(next) != close) {
+                    next = typeEnd(signature, next);
+                }
+                return next + 1;
+            }
+
+            return index + 1;
+        }
+    }
+}
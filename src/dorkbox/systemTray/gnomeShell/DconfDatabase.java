@@ -0,0 +1,375 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.gnomeShell;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import dorkbox.systemTray.SystemTray;
+
+/**
+ * Read-only, in-process access to a dconf database file (by default, the user database at ~/.config/dconf/user).
+ * <p>
+ * dconf stores its values in a GVDB file (a hash table of GVariant values), which we memory-map and read directly so that we don't
+ * have to spawn 'gsettings' just to read a value. The file is only re-mapped when its modification time (or size) changes. dconf
+ * always writes a new file and renames it over the old one, so an existing mapping is never modified underneath us.
+ * <p>
+ * Writes are NOT supported, they must go through the dconf service (ie: via 'gsettings set').
+ * <p>
+ * See: https://gitlab.gnome.org/GNOME/gvdb/-/blob/main/gvdb/gvdb-format.h
+ */
+public
+class DconfDatabase {
+    // "GVariant" as two little-endian 32-bit words
+    private static final int SIGNATURE_0 = 0x72615647;
+    private static final int SIGNATURE_1 = 0x746e6169;
+
+    private static final int HEADER_SIZE = 24;
+    private static final int HASH_ITEM_SIZE = 24;
+    private static final int NO_PARENT = 0xFFFFFFFF;
+
+    private static volatile DconfDatabase user = null;
+
+    /**
+     * @return the dconf database for the current user. This respects XDG_CONFIG_HOME.
+     */
+    public static
+    DconfDatabase getUser() {
+        DconfDatabase database = user;
+        if (database == null) {
+            synchronized (DconfDatabase.class) {
+                database = user;
+                if (database == null) {
+                    String configHome = System.getenv("XDG_CONFIG_HOME");
+                    if (configHome == null || configHome.isEmpty()) {
+                        configHome = System.getProperty("user.home") + "/.config";
+                    }
+
+                    database = new DconfDatabase(new File(configHome, "dconf/user"));
+                    user = database;
+                }
+            }
+        }
+
+        return database;
+    }
+
+
+    private final File file;
+
+    // these are only accessed while synchronized
+    private ByteBuffer buffer = null;
+    private long lastModified = -1L;
+    private long lastLength = -1L;
+
+    private int bucketsOffset;
+    private int nBuckets;
+    private int hashItemsOffset;
+    private int nHashItems;
+
+    public
+    DconfDatabase(final File file) {
+        this.file = file;
+    }
+
+    public
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Reads a string-array (GVariant type 'as') value from the database.
+     *
+     * @param key the full dconf key, for example: "/org/gnome/shell/enabled-extensions"
+     *
+     * @return the array, or null if the database or key is not available (in which case the caller should ask gsettings, since the
+     *          value might be a schema or system default)
+     */
+    public synchronized
+    List<String> getStringArray(final String key) {
+        ByteBuffer value = lookup(key);
+        if (value == null) {
+            return null;
+        }
+
+        // values are stored as variants, which is the value data + '\0' + the type string
+        int end = value.limit();
+        int typeStart = end;
+        while (typeStart > 0 && value.get(typeStart - 1) != 0) {
+            typeStart--;
+        }
+
+        if (typeStart == 0) {
+            // not a valid variant
+            return null;
+        }
+
+        String type = getString(value, typeStart, end);
+        if (!"as".equals(type)) {
+            if (SystemTray.DEBUG) {
+                SystemTray.logger.debug("Unexpected dconf type '{}' for key {}", type, key);
+            }
+            return null;
+        }
+
+        value.limit(typeStart - 1);
+        return readStringArray(value.slice());
+    }
+
+    /**
+     * @return the (sliced) value of the key, or null if it doesn't exist or the database is unreadable.
+     */
+    private
+    ByteBuffer lookup(final String key) {
+        if (!refresh() || nBuckets == 0) {
+            return null;
+        }
+
+        final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        final int hash = hash(keyBytes);
+
+        final ByteBuffer buffer = this.buffer;
+        final int bucket = (int) ((hash & 0xFFFFFFFFL) % nBuckets);
+
+        int itemNumber = buffer.getInt(bucketsOffset + bucket * 4);
+        int lastItemNumber;
+        if (bucket == nBuckets - 1) {
+            lastItemNumber = nHashItems;
+        } else {
+            lastItemNumber = Math.min(buffer.getInt(bucketsOffset + (bucket + 1) * 4), nHashItems);
+        }
+
+        for (; itemNumber >= 0 && itemNumber < lastItemNumber; itemNumber++) {
+            int item = hashItemsOffset + itemNumber * HASH_ITEM_SIZE;
+
+            if (buffer.getInt(item) == hash && checkName(item, keyBytes, keyBytes.length)) {
+                // 'v' is a value, 'H' is a hash table (directory), 'L' is a list
+                if (buffer.get(item + 14) != 'v') {
+                    return null;
+                }
+
+                int start = buffer.getInt(item + 16);
+                int end = buffer.getInt(item + 20);
+                if (start < 0 || end < start || end > buffer.limit()) {
+                    return null;
+                }
+
+                ByteBuffer duplicate = buffer.duplicate();
+                duplicate.position(start);
+                duplicate.limit(end);
+                return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+
+        return null;
+    }
+
+    // key names are stored relative to their parent, so we have to walk up the parent chain to match the full name
+    private
+    boolean checkName(final int item, final byte[] key, int keyLength) {
+        final ByteBuffer buffer = this.buffer;
+
+        int start = buffer.getInt(item + 8);
+        int size = buffer.getShort(item + 12) & 0xFFFF;
+
+        if (start < 0 || start + size > buffer.limit() || size > keyLength) {
+            return false;
+        }
+
+        keyLength -= size;
+        for (int i = 0; i < size; i++) {
+            if (buffer.get(start + i) != key[keyLength + i]) {
+                return false;
+            }
+        }
+
+        int parent = buffer.getInt(item + 4);
+        if (keyLength == 0 && parent == NO_PARENT) {
+            return true;
+        }
+
+        if (parent >= 0 && parent < nHashItems && keyLength > 0) {
+            return checkName(hashItemsOffset + parent * HASH_ITEM_SIZE, key, keyLength);
+        }
+
+        return false;
+    }
+
+    /**
+     * Re-maps the file if it has changed since the last time we looked at it.
+     *
+     * @return true if the database is available
+     */
+    private
+    boolean refresh() {
+        long modified = file.lastModified();
+        long length = file.length();
+
+        if (modified == 0L || length < HEADER_SIZE) {
+            // file doesn't exist (or is not valid)
+            buffer = null;
+            lastModified = -1L;
+            lastLength = -1L;
+            return false;
+        }
+
+        if (buffer != null && modified == lastModified && length == lastLength) {
+            return true;
+        }
+
+        buffer = null;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+
+            // the mapping stays valid after the channel is closed
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (parseHeader(mapped)) {
+                buffer = mapped;
+                lastModified = modified;
+                lastLength = length;
+                return true;
+            }
+
+            SystemTray.logger.error("Unable to parse the dconf database {}", file);
+        } catch (IOException e) {
+            SystemTray.logger.error("Unable to read the dconf database {}", file, e);
+        }
+
+        return false;
+    }
+
+    private
+    boolean parseHeader(final ByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        int signature0 = buffer.getInt(0);
+        int signature1 = buffer.getInt(4);
+
+        if (signature0 == Integer.reverseBytes(SIGNATURE_0) && signature1 == Integer.reverseBytes(SIGNATURE_1)) {
+            // this file was written on a big-endian machine
+            buffer.order(ByteOrder.BIG_ENDIAN);
+        }
+        else if (signature0 != SIGNATURE_0 || signature1 != SIGNATURE_1) {
+            return false;
+        }
+
+        int version = buffer.getInt(8);
+        if (version != 0) {
+            return false;
+        }
+
+        int rootStart = buffer.getInt(16);
+        int rootEnd = buffer.getInt(20);
+        if (rootStart < HEADER_SIZE || rootEnd < rootStart + 8 || rootEnd > buffer.limit() || (rootStart & 3) != 0) {
+            return false;
+        }
+
+        // the top 5 bits are the bloom shift, which we don't need (the bloom filter is only an optimization)
+        int nBloomWords = buffer.getInt(rootStart) & ((1 << 27) - 1);
+        int buckets = buffer.getInt(rootStart + 4);
+
+        long bucketsOffset = rootStart + 8L + nBloomWords * 4L;
+        long hashItemsOffset = bucketsOffset + buckets * 4L;
+
+        if (buckets < 0 || hashItemsOffset > rootEnd) {
+            return false;
+        }
+
+        this.bucketsOffset = (int) bucketsOffset;
+        this.nBuckets = buckets;
+        this.hashItemsOffset = (int) hashItemsOffset;
+        this.nHashItems = (int) ((rootEnd - hashItemsOffset) / HASH_ITEM_SIZE);
+
+        return true;
+    }
+
+    /**
+     * This is the "djb" hash, as used by GVDB. The bytes are SIGNED.
+     */
+    private static
+    int hash(final byte[] key) {
+        int hash = 5381;
+        for (byte b : key) {
+            hash = hash * 33 + b;
+        }
+        return hash;
+    }
+
+    /**
+     * GVariant arrays of variable-sized elements are the elements followed by a table of (little-endian) end-offsets, where the
+     * size of each offset depends on the size of the array.
+     */
+    private static
+    List<String> readStringArray(final ByteBuffer data) {
+        final int size = data.limit();
+        final List<String> strings = new ArrayList<>();
+
+        if (size == 0) {
+            return strings;
+        }
+
+        final int offsetSize = size <= 0xFF ? 1 : (size <= 0xFFFF ? 2 : 4);
+
+        int offsetsStart = readOffset(data, size - offsetSize, offsetSize);
+        if (offsetsStart > size || (size - offsetsStart) % offsetSize != 0) {
+            return null;
+        }
+
+        int count = (size - offsetsStart) / offsetSize;
+        int start = 0;
+
+        for (int i = 0; i < count; i++) {
+            int end = readOffset(data, offsetsStart + i * offsetSize, offsetSize);
+            if (end < start || end > offsetsStart) {
+                return null;
+            }
+
+            // each string is NULL terminated
+            if (end > start) {
+                strings.add(getString(data, start, end - 1));
+            }
+            start = end;
+        }
+
+        return strings;
+    }
+
+    private static
+    int readOffset(final ByteBuffer data, final int position, final int offsetSize) {
+        int value = 0;
+        for (int i = 0; i < offsetSize; i++) {
+            value |= (data.get(position + i) & 0xFF) << (8 * i);
+        }
+        return value;
+    }
+
+    private static
+    String getString(final ByteBuffer data, final int start, final int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
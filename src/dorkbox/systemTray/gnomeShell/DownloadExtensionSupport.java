@@ -16,6 +16,9 @@
 package dorkbox.systemTray.gnomeShell;
 
 import java.io.File;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.util.KotlinUtils;
@@ -23,6 +26,11 @@ import dorkbox.systemTray.util.KotlinUtils;
 @SuppressWarnings({"WeakerAccess"})
 public
 class DownloadExtensionSupport {
+    private static final long CONNECT_TIMEOUT_MS = 2_000L;
+
+    // gnome-shell asks the user to confirm the install, so this can take a while. This is the same as the gdbus default.
+    private static final long INSTALL_TIMEOUT_MS = 25_000L;
+
     // this can only be modified with a shell-restart (or, in our case to log out/in)
     private final String name;
     private final String UID;
@@ -83,16 +91,39 @@ class DownloadExtensionSupport {
 
         // this will install the extension
         boolean isSuccess = false;
-        int count = 5;
-        while (count-- > 0) {
-            String successString = KotlinUtils.INSTANCE.execute("gdbus", "call", "--session",
-                                                                "--dest", "org.gnome.Shell.Extensions",
-                                                                "--object-path", "/org/gnome/Shell/Extensions",
-                                                                "--method", "org.gnome.Shell.Extensions.InstallRemoteExtension",
-                                                                "\"" + UID + "\"");
-            if (successString.contains("successful")) {
-                isSuccess = true;
-                break;
+
+        // talking to gnome-shell directly is much faster than spawning gdbus. If the session bus is not available, use gdbus instead.
+        DBusSession session = null;
+        try {
+            session = DBusSession.openSession(CONNECT_TIMEOUT_MS);
+        } catch (Throwable e) {
+            if (SystemTray.DEBUG) {
+                SystemTray.logger.debug("Unable to connect to the D-Bus session bus, using gdbus instead.", e);
+            }
+        }
+
+        try {
+            int count = 5;
+            while (count-- > 0) {
+                String successString;
+                if (session != null) {
+                    successString = installRemoteExtension(session, UID);
+                } else {
+                    successString = KotlinUtils.INSTANCE.execute("gdbus", "call", "--session",
+                                                                 "--dest", "org.gnome.Shell.Extensions",
+                                                                 "--object-path", "/org/gnome/Shell/Extensions",
+                                                                 "--method", "org.gnome.Shell.Extensions.InstallRemoteExtension",
+                                                                 "\"" + UID + "\"");
+                }
+
+                if (successString.contains("successful")) {
+                    isSuccess = true;
+                    break;
+                }
+            }
+        } finally {
+            if (session != null) {
+                session.close();
             }
         }
 
@@ -103,6 +134,35 @@ class DownloadExtensionSupport {
         return isSuccess;
     }
 
+    /**
+     * @return the result from gnome-shell ("successful" or "cancelled"), or the error if there was a problem
+     */
+    private static
+    String installRemoteExtension(final DBusSession session, final String UID) {
+        try {
+            Object[] reply = session.call("org.gnome.Shell.Extensions", "/org/gnome/Shell/Extensions",
+                                          "org.gnome.Shell.Extensions", "InstallRemoteExtension", "s", UID)
+                                    .get(INSTALL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+            if (reply.length > 0) {
+                return String.valueOf(reply[0]);
+            }
+        } catch (ExecutionException e) {
+            if (SystemTray.DEBUG) {
+                SystemTray.logger.debug("Error installing the extension via D-Bus", e.getCause());
+            }
+            return String.valueOf(e.getCause().getMessage());
+        } catch (TimeoutException e) {
+            if (SystemTray.DEBUG) {
+                SystemTray.logger.debug("Timed out installing the extension via D-Bus");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return "";
+    }
+
     public static
     void unInstall(String UID, String restartCommand) {
         final boolean enabled = ExtensionSupport.enabledExtensions.contains(UID);
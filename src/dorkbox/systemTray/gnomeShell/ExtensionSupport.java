@@ -44,6 +44,9 @@ class ExtensionSupport {
     // this can only be modified with a shell-restart (or, in our case to log out/in)
     static final List<String> enabledExtensions = getEnabledExtensions();
 
+    // the shell version cannot change without restarting the shell
+    private static volatile String shellVersion = null;
+
     private final String name;
     private final String UID;
     private final String zipFile;
@@ -133,6 +136,20 @@ class ExtensionSupport {
 
     public static
     List<String> getEnabledExtensions() {
+        // reading the dconf database directly is MUCH faster than spawning gsettings. If the key is not in the user database, then
+        // the value is a default (from the schema or system database), and only gsettings can tell us what that is.
+        List<String> dconfExtensions = DconfDatabase.getUser().getStringArray("/org/gnome/shell/enabled-extensions");
+        if (dconfExtensions != null) {
+            ArrayList<String> strings = new ArrayList<>(dconfExtensions);
+            strings.removeIf(string->string.trim().isEmpty());
+
+            if (SystemTray.DEBUG) {
+                logger.debug("Installed extensions (via dconf) are: {}", strings);
+            }
+
+            return strings;
+        }
+
         String output;
         try {
             // gsettings get org.gnome.shell enabled-extensions
@@ -462,9 +479,15 @@ class ExtensionSupport {
                "}\n";
     }
 
-    protected static
+    /**
+     * @return the major.minor version of the running gnome-shell, or null if it could not be determined
+     */
+    public static
     String getGnomeVersion() {
-        String gnomeVersion = OS.DesktopEnv.INSTANCE.getGnomeVersion();
+        String gnomeVersion = getShellVersion();
+        if (gnomeVersion == null) {
+            gnomeVersion = OS.DesktopEnv.INSTANCE.getGnomeVersion();
+        }
         if (gnomeVersion == null) {
             return null;
         }
@@ -479,6 +502,27 @@ class ExtensionSupport {
         return gnomeVersion;
     }
 
+    /**
+     * @return the running gnome-shell version (via D-Bus), or null if it could not be determined
+     */
+    private static
+    String getShellVersion() {
+        String version = shellVersion;
+        if (version != null) {
+            return version;
+        }
+
+        Object[] reply = DBusSession.callSession(2_000L, "org.gnome.Shell", "/org/gnome/Shell", "org.freedesktop.DBus.Properties", "Get",
+                                                 "ss", "org.gnome.Shell", "ShellVersion");
+
+        if (reply != null && reply.length > 0 && reply[0] instanceof String) {
+            version = (String) reply[0];
+            shellVersion = version;
+        }
+
+        return version;
+    }
+
     /**
      * @return true if we need to upgrade/re-install the extension, false if we do not need to do anything
      */
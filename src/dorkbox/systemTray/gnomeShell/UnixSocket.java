@@ -0,0 +1,233 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.gnomeShell;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.NativeLong;
+
+/**
+ * A minimal (linux only) stream unix-domain socket, since java 8 has no support for them. This is only used to talk to the D-Bus
+ * session bus.
+ */
+final
+class UnixSocket implements Closeable {
+    private static final int AF_UNIX = 1;
+    private static final int SOCK_STREAM = 1;
+    private static final int SHUT_RDWR = 2;
+    private static final int EINTR = 4;
+    private static final int EAGAIN = 11;
+
+    // these are the same on x86, x86_64, arm and aarch64
+    private static final int SOL_SOCKET = 1;
+    private static final int SO_RCVTIMEO = 20;
+
+    // sizeof(sockaddr_un.sun_path) on linux
+    private static final int MAX_PATH = 108;
+
+    static final
+    class LibC {
+        static {
+            Native.register(NativeLibrary.getInstance("c"));
+        }
+
+        static native int socket(int domain, int type, int protocol) throws LastErrorException;
+        static native int connect(int fd, byte[] address, int addressLength) throws LastErrorException;
+        static native int setsockopt(int fd, int level, int name, byte[] value, int length) throws LastErrorException;
+        static native NativeLong read(int fd, byte[] buffer, NativeLong count) throws LastErrorException;
+        static native NativeLong write(int fd, byte[] buffer, NativeLong count) throws LastErrorException;
+        static native int shutdown(int fd, int how);
+        static native int close(int fd);
+        static native int getuid();
+    }
+
+    private final int fd;
+    private volatile boolean closed = false;
+
+    /**
+     * @param isAbstract true if this is a linux "abstract" socket (one that does not exist on the filesystem)
+     */
+    UnixSocket(final String path, final boolean isAbstract) throws IOException {
+        byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+        // abstract sockets have a leading NUL, paths have a trailing NUL
+        int pathLength = pathBytes.length + 1;
+        if (pathLength > MAX_PATH) {
+            throw new IOException("Socket path is too long: " + path);
+        }
+
+        // struct sockaddr_un { sa_family_t sun_family; char sun_path[108]; }
+        ByteBuffer address = ByteBuffer.allocate(2 + MAX_PATH).order(ByteOrder.nativeOrder());
+        address.putShort((short) AF_UNIX);
+        if (isAbstract) {
+            address.put((byte) 0);
+        }
+        address.put(pathBytes);
+
+        try {
+            fd = LibC.socket(AF_UNIX, SOCK_STREAM, 0);
+        } catch (LastErrorException e) {
+            throw new IOException("Unable to create socket", e);
+        }
+
+        try {
+            // abstract socket names are NOT NUL terminated, and the length must be exact
+            LibC.connect(fd, address.array(), 2 + pathLength);
+        } catch (LastErrorException e) {
+            LibC.close(fd);
+            throw new IOException("Unable to connect to " + (isAbstract ? "abstract socket " : "socket ") + path, e);
+        }
+    }
+
+    static
+    int getUid() {
+        return LibC.getuid();
+    }
+
+    /**
+     * Sets how long a read can block for before it fails, or 0 to block forever.
+     */
+    void setReadTimeout(final long timeoutMillis) throws IOException {
+        // struct timeval { time_t tv_sec; suseconds_t tv_usec; }, both are the size of a native long
+        ByteBuffer timeval = ByteBuffer.allocate(NativeLong.SIZE * 2).order(ByteOrder.nativeOrder());
+        long seconds = timeoutMillis / 1000L;
+        long micros = (timeoutMillis % 1000L) * 1000L;
+        if (NativeLong.SIZE == 8) {
+            timeval.putLong(seconds).putLong(micros);
+        } else {
+            timeval.putInt((int) Math.min(seconds, Integer.MAX_VALUE)).putInt((int) micros);
+        }
+
+        try {
+            LibC.setsockopt(fd, SOL_SOCKET, SO_RCVTIMEO, timeval.array(), timeval.capacity());
+        } catch (LastErrorException e) {
+            throw new IOException("Unable to set the socket read timeout", e);
+        }
+    }
+
+    /**
+     * Reads exactly length bytes
+     */
+    void readFully(final byte[] buffer, final int length) throws IOException {
+        int offset = 0;
+
+        while (offset < length) {
+            if (closed) {
+                throw new IOException("Socket closed");
+            }
+
+            // JNA cannot read into the middle of an array, so partial reads have to be copied
+            byte[] target = offset == 0 ? buffer : new byte[length - offset];
+
+            int count;
+            try {
+                count = LibC.read(fd, target, new NativeLong(length - offset)).intValue();
+            } catch (LastErrorException e) {
+                if (e.getErrorCode() == EINTR) {
+                    continue;
+                }
+                if (e.getErrorCode() == EAGAIN) {
+                    throw new IOException("Timed out reading from socket", e);
+                }
+                throw new IOException("Unable to read from socket", e);
+            }
+
+            if (count <= 0) {
+                throw new IOException("Socket closed");
+            }
+
+            if (target != buffer) {
+                System.arraycopy(target, 0, buffer, offset, count);
+            }
+            offset += count;
+        }
+    }
+
+    /**
+     * Reads a single CRLF terminated line (used for authentication only, so it is read one byte at a time)
+     */
+    String readLine() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        byte[] single = new byte[1];
+
+        while (true) {
+            readFully(single, 1);
+            if (single[0] == '\n') {
+                int length = builder.length();
+                if (length > 0 && builder.charAt(length - 1) == '\r') {
+                    builder.setLength(length - 1);
+                }
+                return builder.toString();
+            }
+
+            builder.append((char) single[0]);
+            if (builder.length() > 4096) {
+                throw new IOException("Line is too long");
+            }
+        }
+    }
+
+    synchronized
+    void write(final byte[] bytes) throws IOException {
+        byte[] remaining = bytes;
+
+        while (remaining.length > 0) {
+            if (closed) {
+                throw new IOException("Socket closed");
+            }
+
+            int count;
+            try {
+                count = LibC.write(fd, remaining, new NativeLong(remaining.length)).intValue();
+            } catch (LastErrorException e) {
+                if (e.getErrorCode() == EINTR) {
+                    continue;
+                }
+                throw new IOException("Unable to write to socket", e);
+            }
+
+            if (count <= 0) {
+                throw new IOException("Socket closed");
+            }
+
+            if (count == remaining.length) {
+                break;
+            }
+
+            byte[] next = new byte[remaining.length - count];
+            System.arraycopy(remaining, count, next, 0, next.length);
+            remaining = next;
+        }
+    }
+
+    @Override
+    public
+    void close() {
+        if (!closed) {
+            closed = true;
+
+            // shutdown will wake up any thread blocked in read()
+            LibC.shutdown(fd, SHUT_RDWR);
+            LibC.close(fd);
+        }
+    }
+}
@@ -15,6 +15,8 @@
  */
 package dorkbox.systemTray.peer;
 
+import java.util.concurrent.CompletableFuture;
+
 import dorkbox.systemTray.Entry;
 import dorkbox.systemTray.Menu;
 
@@ -25,5 +27,16 @@ public
 interface MenuPeer extends MenuItemPeer {
     void add(Menu parentMenu, Entry entry, int index);
 
+    /**
+     * The same as {@link #add(Menu, Entry, int)}, for peers that do not wait for the entry to be added.
+     *
+     * @return a future that completes once the entry has been added to the native menu
+     */
+    default
+    CompletableFuture<?> addAsync(Menu parentMenu, Entry entry, int index) {
+        add(parentMenu, entry, index);
+        return CompletableFuture.completedFuture(null);
+    }
+
     boolean hasParent();
 }
@@ -25,6 +25,7 @@ import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.Separator;
 import dorkbox.systemTray.Status;
 import dorkbox.systemTray.peer.MenuPeer;
+import dorkbox.systemTray.util.PeerState;
 import dorkbox.util.SwingUtil;
 
 // this is a weird composite class, because it must be a Menu, but ALSO a Entry -- so it has both
@@ -33,6 +34,9 @@ class AwtMenu implements MenuPeer {
     volatile java.awt.Menu _native;
     private final AwtMenu parent;
 
+    // the last values that were applied to the native component
+    private final PeerState peerState = new PeerState();
+
     // This is NOT a copy constructor!
     @SuppressWarnings("IncompleteCopyConstructor")
     AwtMenu(final AwtMenu parent) {
@@ -89,14 +93,24 @@ class AwtMenu implements MenuPeer {
     @Override
     public
     void setEnabled(final MenuItem menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->_native.setEnabled(menuItem.getEnabled()));
+        final boolean enabled = menuItem.getEnabled();
+        if (!peerState.update(PeerState.ENABLED, enabled)) {
+            return;
+        }
+
+        SwingUtil.INSTANCE.invokeLater(()->_native.setEnabled(enabled));
     }
 
     // is overridden in tray impl
     @Override
     public
     void setText(final MenuItem menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->_native.setLabel(menuItem.getText()));
+        final String text = menuItem.getText();
+        if (!peerState.update(PeerState.TEXT, text)) {
+            return;
+        }
+
+        SwingUtil.INSTANCE.invokeLater(()->_native.setLabel(text));
     }
 
     @Override
@@ -111,6 +125,9 @@ class AwtMenu implements MenuPeer {
     void setShortcut(final MenuItem menuItem) {
         // Will return 0 as the vKey if it's not set (which will remove the shortcut)
         final int vKey = SwingUtil.INSTANCE.getVirtualKey(menuItem.getShortcut());
+        if (!peerState.update(PeerState.SHORTCUT, vKey)) {
+            return;
+        }
 
         SwingUtil.INSTANCE.invokeLater(()->_native.setShortcut(new MenuShortcut(vKey)));
     }
@@ -23,6 +23,7 @@ import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.MenuItemPeer;
 import dorkbox.systemTray.util.EventDispatch;
+import dorkbox.systemTray.util.PeerState;
 import dorkbox.util.SwingUtil;
 
 class AwtMenuItem implements MenuItemPeer {
@@ -30,6 +31,9 @@ class AwtMenuItem implements MenuItemPeer {
     private final AwtMenu parent;
     private final java.awt.MenuItem _native = new java.awt.MenuItem();
 
+    // the last values that were applied to the native component
+    private final PeerState peerState = new PeerState();
+
     private volatile ActionListener callback;
 
     // this is ALWAYS called on the EDT.
@@ -47,13 +51,23 @@ class AwtMenuItem implements MenuItemPeer {
     @Override
     public
     void setEnabled(final dorkbox.systemTray.MenuItem menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->_native.setEnabled(menuItem.getEnabled()));
+        final boolean enabled = menuItem.getEnabled();
+        if (!peerState.update(PeerState.ENABLED, enabled)) {
+            return;
+        }
+
+        SwingUtil.INSTANCE.invokeLater(()->_native.setEnabled(enabled));
     }
 
     @Override
     public
     void setText(final dorkbox.systemTray.MenuItem menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->_native.setLabel(menuItem.getText()));
+        final String text = menuItem.getText();
+        if (!peerState.update(PeerState.TEXT, text)) {
+            return;
+        }
+
+        SwingUtil.INSTANCE.invokeLater(()->_native.setLabel(text));
     }
 
     @SuppressWarnings("Duplicates")
@@ -74,7 +88,7 @@ class AwtMenuItem implements MenuItemPeer {
                 public
                 void actionPerformed(ActionEvent e) {
                     // we want it to run on our own with our own action event info (so it is consistent across all platforms)
-                    EventDispatch.runLater(()->{
+                    EventDispatch.runLater(menuItem, ()->{
                         try {
                             cb.actionPerformed(new ActionEvent(menuItem, ActionEvent.ACTION_PERFORMED, ""));
                         } catch (Throwable throwable) {
@@ -93,6 +107,9 @@ class AwtMenuItem implements MenuItemPeer {
     void setShortcut(final dorkbox.systemTray.MenuItem menuItem) {
         // Will return 0 as the vKey if it's not set (which will remove the shortcut)
         final int vKey = SwingUtil.INSTANCE.getVirtualKey(menuItem.getShortcut());
+        if (!peerState.update(PeerState.SHORTCUT, vKey)) {
+            return;
+        }
 
         SwingUtil.INSTANCE.invokeLater(()->_native.setShortcut(new MenuShortcut(vKey)));
     }
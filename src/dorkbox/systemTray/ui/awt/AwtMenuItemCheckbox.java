@@ -25,6 +25,7 @@ import dorkbox.systemTray.Checkbox;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.CheckboxPeer;
 import dorkbox.systemTray.util.EventDispatch;
+import dorkbox.systemTray.util.PeerState;
 import dorkbox.util.SwingUtil;
 
 class AwtMenuItemCheckbox implements CheckboxPeer {
@@ -32,6 +33,9 @@ class AwtMenuItemCheckbox implements CheckboxPeer {
     private final AwtMenu parent;
     private final java.awt.CheckboxMenuItem _native = new java.awt.CheckboxMenuItem();
 
+    // the last values that were applied to the native component
+    private final PeerState peerState = new PeerState();
+
     // these have to be volatile, because they can be changed from any thread
     private volatile ItemListener callback;
     private volatile boolean isChecked = false;
@@ -45,13 +49,23 @@ class AwtMenuItemCheckbox implements CheckboxPeer {
     @Override
     public
     void setEnabled(final Checkbox menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->_native.setEnabled(menuItem.getEnabled()));
+        final boolean enabled = menuItem.getEnabled();
+        if (!peerState.update(PeerState.ENABLED, enabled)) {
+            return;
+        }
+
+        SwingUtil.INSTANCE.invokeLater(()->_native.setEnabled(enabled));
     }
 
     @Override
     public
     void setText(final Checkbox menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->_native.setLabel(menuItem.getText()));
+        final String text = menuItem.getText();
+        if (!peerState.update(PeerState.TEXT, text)) {
+            return;
+        }
+
+        SwingUtil.INSTANCE.invokeLater(()->_native.setLabel(text));
     }
 
     @SuppressWarnings("Duplicates")
@@ -76,7 +90,7 @@ class AwtMenuItemCheckbox implements CheckboxPeer {
                     menuItem.setChecked(!isChecked);
 
                     // we want it to run on our own with our own action event info (so it is consistent across all platforms)
-                    EventDispatch.runLater(()->{
+                    EventDispatch.runLater(menuItem, ()->{
                         try {
                             cb.actionPerformed(new ActionEvent(menuItem, ActionEvent.ACTION_PERFORMED, ""));
                         } catch (Throwable throwable) {
@@ -95,6 +109,9 @@ class AwtMenuItemCheckbox implements CheckboxPeer {
     void setShortcut(final Checkbox menuItem) {
         // Will return 0 as the vKey if it's not set (which will remove the shortcut)
         final int vKey = SwingUtil.INSTANCE.getVirtualKey(menuItem.getShortcut());
+        if (!peerState.update(PeerState.SHORTCUT, vKey)) {
+            return;
+        }
 
         SwingUtil.INSTANCE.invokeLater(()->_native.setShortcut(new MenuShortcut(vKey)));
     }
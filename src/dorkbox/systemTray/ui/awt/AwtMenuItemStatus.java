@@ -22,6 +22,7 @@ import java.awt.MenuItem;
 
 import dorkbox.systemTray.Status;
 import dorkbox.systemTray.peer.StatusPeer;
+import dorkbox.systemTray.util.PeerState;
 import dorkbox.util.SwingUtil;
 
 class AwtMenuItemStatus implements StatusPeer {
@@ -29,6 +30,9 @@ class AwtMenuItemStatus implements StatusPeer {
     private final AwtMenu parent;
     private final MenuItem _native = new MenuItem();
 
+    // the last values that were applied to the native component
+    private final PeerState peerState = new PeerState();
+
     AwtMenuItemStatus(final AwtMenu parent) {
         this.parent = parent;
 
@@ -39,6 +43,11 @@ class AwtMenuItemStatus implements StatusPeer {
     @Override
     public
     void setText(final Status menuItem) {
+        final String text = menuItem.getText();
+        if (!peerState.update(PeerState.TEXT, text)) {
+            return;
+        }
+
         SwingUtil.INSTANCE.invokeLater(()->{
             Font font = _native.getFont();
             if (font == null) {
@@ -49,7 +58,7 @@ class AwtMenuItemStatus implements StatusPeer {
             }
 
             _native.setFont(font);
-            _native.setLabel(menuItem.getText());
+            _native.setLabel(text);
 
             // this makes sure it can't be selected
             _native.setEnabled(false);
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.ui.awt;
+
+import dorkbox.os.OS;
+import dorkbox.systemTray.SystemTray.TrayType;
+import dorkbox.systemTray.Tray;
+import dorkbox.systemTray.util.ImageResizeUtil;
+import dorkbox.systemTray.util.SystemTrayFixesMacOS;
+import dorkbox.systemTray.util.TrayProvider;
+
+/**
+ * Creates the AWT tray.
+ */
+@SuppressWarnings("unused")
+public final
+class AwtTrayProvider extends TrayProvider {
+    @Override
+    public
+    TrayType getType() {
+        return TrayType.Awt;
+    }
+
+    @Override
+    public
+    boolean isCreatedOnEdt() {
+        return true;
+    }
+
+    @Override
+    public
+    void fixTray() {
+        if (OS.INSTANCE.isMacOsX()) {
+            // AWT on macosx doesn't respond to all buttons (but should)
+            SystemTrayFixesMacOS.fix(TrayType.Awt);
+        }
+    }
+
+    @Override
+    public
+    Tray create(final String trayName, final ImageResizeUtil imageResizeUtil, final Runnable onRemoveEvent) {
+        return new _AwtTray(trayName, imageResizeUtil, onRemoveEvent);
+    }
+}
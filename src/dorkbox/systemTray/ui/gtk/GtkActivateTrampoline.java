@@ -0,0 +1,109 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.ui.gtk;
+
+import static dorkbox.jna.linux.Gtk.Gtk2;
+
+import java.util.Arrays;
+
+import com.sun.jna.Pointer;
+
+import dorkbox.jna.linux.GCallback;
+
+/**
+ * A single native callback for the "activate" signal of every menu entry.
+ * <p>
+ * JNA creates (and keeps) a native thunk for every callback object that is passed to native code, so instead of each menu entry being
+ * its own callback, they all share this one. The menu entry is found by the id that is passed as the signal user data.
+ * <p>
+ * Everything here is only accessed on the GTK dispatch thread.
+ */
+final
+class GtkActivateTrampoline {
+    interface Listener {
+        void onActivate();
+    }
+
+    // the index is the id. 0 is never used, since that would be a NULL user data
+    private static Listener[] listeners = new Listener[32];
+    private static int[] freeIds = new int[32];
+    private static int freeCount = 0;
+    private static int nextId = 1;
+
+    // called by native code, always on the GTK event dispatch thread
+    private static final GCallback trampoline = new GCallback() {
+        @Override
+        public
+        int callback(final Pointer instance, final Pointer data) {
+            final long id = Pointer.nativeValue(data);
+
+            if (id > 0 && id < nextId) {
+                Listener listener = listeners[(int) id];
+                if (listener != null) {
+                    listener.onActivate();
+                }
+            }
+
+            return Gtk2.TRUE;
+        }
+    };
+
+    /**
+     * @return the id of the listener, for {@link #connect(Pointer, int)}. It must be removed (see {@link #remove(int)}) when the menu
+     *         entry is removed
+     */
+    static
+    int add(final Listener listener) {
+        final int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        }
+        else {
+            id = nextId++;
+            if (id == listeners.length) {
+                listeners = Arrays.copyOf(listeners, id * 2);
+            }
+        }
+
+        listeners[id] = listener;
+        return id;
+    }
+
+    /**
+     * @return the signal handler id
+     */
+    static
+    long connect(final Pointer menuEntry, final int id) {
+        return GtkDirect.g_signal_connect_data(menuEntry, "activate", trampoline, new Pointer(id));
+    }
+
+    /**
+     * The menu entry must already be destroyed (or removed from the menu), so that it can no longer be activated.
+     */
+    static
+    void remove(final int id) {
+        listeners[id] = null;
+
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+        }
+        freeIds[freeCount++] = id;
+    }
+
+    private
+    GtkActivateTrampoline() {
+    }
+}
@@ -22,8 +22,9 @@ import java.io.File;
 import com.sun.jna.Pointer;
 
 import dorkbox.jna.linux.GObject;
-import dorkbox.jna.linux.GtkEventDispatch;
 import dorkbox.systemTray.peer.EntryPeer;
+import dorkbox.systemTray.util.MenuVisibility;
+import dorkbox.systemTray.util.PeerState;
 
 abstract
 class GtkBaseMenuItem implements EntryPeer {
@@ -38,8 +39,15 @@ class GtkBaseMenuItem implements EntryPeer {
     // the native GTK component
     protected final Pointer _native;
 
-    GtkBaseMenuItem(final Pointer _native) {
+    // the last values that were applied to the native component
+    protected final PeerState peerState = new PeerState();
+
+    // shared by the entire menu, and applies the changes to the menu entries when the menu is shown
+    protected final MenuVisibility menuVisibility;
+
+    GtkBaseMenuItem(final Pointer _native, final MenuVisibility menuVisibility) {
         this._native = _native;
+        this.menuVisibility = menuVisibility;
     }
 
     public
@@ -59,7 +67,8 @@ class GtkBaseMenuItem implements EntryPeer {
     protected
     void removeSpacerImage() {
         if (spacerImage != null) {
-            Gtk2.gtk_container_remove(_native, spacerImage); // will automatically get destroyed if no other references to it
+            GtkDirect.gtk_container_remove(_native, spacerImage); // will automatically get destroyed if no other references to it
+            GtkPixbufCache.releaseImage(spacerImage);
             spacerImage = null;
         }
     }
@@ -73,11 +82,11 @@ class GtkBaseMenuItem implements EntryPeer {
     protected
     void addSpacerImage() {
         if (spacerImage == null) {
-            spacerImage = Gtk2.gtk_image_new_from_file(transparentIcon.getAbsolutePath());
-            Gtk2.gtk_image_menu_item_set_image(_native, spacerImage);
+            spacerImage = GtkPixbufCache.newImage(transparentIcon);
+            GtkDirect.gtk_image_menu_item_set_image(_native, spacerImage);
 
             //  must always re-set always-show after setting the image
-            Gtk2.gtk_image_menu_item_set_always_show_image(_native, true);
+            GtkDirect.gtk_image_menu_item_set_always_show_image(_native, true);
         }
     }
 
@@ -108,7 +117,7 @@ class GtkBaseMenuItem implements EntryPeer {
     // always on EDT
     void onDeleteMenu(final Pointer parentNative) {
         GObject.g_object_force_floating(_native);  // makes it a floating reference
-        Gtk2.gtk_container_remove(parentNative, _native);
+        GtkDirect.gtk_container_remove(parentNative, _native);
     }
 
     // some GTK libraries DO NOT let us add items AFTER the menu has been attached to the indicator.
@@ -126,11 +135,7 @@ class GtkBaseMenuItem implements EntryPeer {
     @Override
     public
     void remove() {
-        GtkEventDispatch.dispatch(()->{
-            if (spacerImage != null) {
-                Gtk2.gtk_container_remove(_native, spacerImage); // will automatically get destroyed if no other references to it
-                spacerImage = null;
-            }
-        });
+        menuVisibility.discard(this);
+        GtkBatchDispatch.dispatch(this::removeSpacerImage);
     }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.ui.gtk;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.sun.jna.Pointer;
+
+import dorkbox.jna.linux.GtkEventDispatch;
+import dorkbox.systemTray.SystemTray;
+
+/**
+ * Batches the GTK peer actions, so that instead of each action scheduling its own idle callback on the GTK main loop, all the queued
+ * actions are run by a single idle callback.
+ * <p>
+ * So that the panel stays responsive during large updates, each main-loop iteration only runs actions for up to
+ * {@link SystemTray#GTK_DISPATCH_BUDGET_MS}, and the rest are run in the next iteration.
+ * <p>
+ * All GTK peer actions must use this (instead of GtkEventDispatch directly), otherwise they could run out-of-order.
+ */
+final
+class GtkBatchDispatch {
+    // lock-free, multiple producers (any thread) and a single consumer (the GTK dispatch thread)
+    private static final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+    // true when a drain has been scheduled on the GTK main loop, but has not yet finished
+    private static final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    // only accessed on the GTK dispatch thread
+    private static int waitDepth = 0;
+
+    // the GTK dispatch thread, once something has run on it
+    private static volatile Thread gtkThread = null;
+
+    private static final Runnable drain = GtkBatchDispatch::drain;
+
+    // reschedules the drain as a real idle source, so that GTK can process its own events before the rest are run
+    private static final GtkDirect.SourceFunc idleDrain = new GtkDirect.SourceFunc() {
+        @Override
+        public
+        int callback(final Pointer data) {
+            drain();
+            return 0; // only run once
+        }
+    };
+
+    /**
+     * Queues the action to run on the GTK dispatch thread, after all previously queued actions.
+     * <p>
+     * When already on the GTK dispatch thread, the action is run immediately (just like GtkEventDispatch.dispatch), so that nested
+     * actions (for example, removing the entries of a menu that is being removed) run in the same order as they are called.
+     */
+    static
+    void dispatch(final Runnable runnable) {
+        if (Thread.currentThread() == gtkThread) {
+            runnable.run();
+            return;
+        }
+
+        queue.offer(runnable);
+
+        if (scheduled.compareAndSet(false, true)) {
+            GtkEventDispatch.dispatch(drain);
+        }
+    }
+
+    /**
+     * Runs the action on the GTK dispatch thread (after all previously queued actions), and waits for it to finish.
+     */
+    static
+    void dispatchAndWait(final Runnable runnable) {
+        GtkEventDispatch.dispatchAndWait(()->{
+            gtkThread = Thread.currentThread();
+
+            // nested calls are already running after everything that was queued before the outer call
+            if (waitDepth == 0) {
+                runQueued(0L);
+            }
+
+            waitDepth++;
+            try {
+                runnable.run();
+            } finally {
+                waitDepth--;
+            }
+        });
+    }
+
+    private static
+    void drain() {
+        gtkThread = Thread.currentThread();
+
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, SystemTray.GTK_DISPATCH_BUDGET_MS));
+
+        while (true) {
+            if (!runQueued(budgetNanos)) {
+                // out of time. The rest are run during the next main-loop iteration, so that GTK can process its own events.
+                if (GtkDirect.gdk_threads_add_idle(idleDrain)) {
+                    return;
+                }
+
+                // we cannot add our own idle source, so there is no way to yield to the main loop. Just keep going.
+                continue;
+            }
+
+            scheduled.set(false);
+
+            // something could have been queued (by another thread) after the queue was empty, but before we cleared the flag
+            if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param budgetNanos how long to run queued actions for, or 0 to run until the queue is empty
+     *
+     * @return true if the queue was emptied, false if the time budget ran out first
+     */
+    private static
+    boolean runQueued(final long budgetNanos) {
+        long start = System.nanoTime();
+
+        Runnable runnable;
+        while ((runnable = queue.poll()) != null) {
+            try {
+                runnable.run();
+            } catch (Throwable e) {
+                SystemTray.logger.error("Error during GTK dispatch.", e);
+            }
+
+            if (budgetNanos > 0 && System.nanoTime() - start >= budgetNanos && !queue.isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private
+    GtkBatchDispatch() {
+    }
+}
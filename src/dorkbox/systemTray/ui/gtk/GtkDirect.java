@@ -0,0 +1,222 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.ui.gtk;
+
+import static dorkbox.jna.linux.Gtk.Gtk2;
+
+import java.util.Collections;
+
+import com.sun.jna.Callback;
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+
+import dorkbox.jna.linux.GObject;
+import dorkbox.systemTray.SystemTray;
+
+/**
+ * The GTK calls that are used every time a menu entry changes.
+ * <p>
+ * These use direct-mapped JNA methods when possible (which are much faster than calling through the JNA interface proxy), and
+ * otherwise fall back to the regular GTK bindings.
+ */
+final
+class GtkDirect {
+    /**
+     * An idle callback on the GTK main loop. Returning 0 (FALSE) removes it, so it only runs once.
+     */
+    interface SourceFunc extends Callback {
+        int callback(Pointer data);
+    }
+
+    static final
+    class Direct {
+        // GTK is already loaded (and global), so we look these up in the current process
+        static {
+            Native.register(NativeLibrary.getProcess(Collections.singletonMap(Library.OPTION_STRING_ENCODING, "UTF-8")));
+        }
+
+        static native void gtk_container_remove(Pointer container, Pointer widget);
+        static native void gtk_widget_show_all(Pointer widget);
+        static native void gtk_widget_set_sensitive(Pointer widget, boolean sensitive);
+        static native void gtk_widget_set_tooltip_text(Pointer widget, String text);
+        static native void gtk_menu_item_set_label(Pointer menuItem, String label);
+        static native void gtk_menu_item_set_submenu(Pointer menuItem, Pointer submenu);
+        static native void gtk_image_menu_item_set_image(Pointer menuItem, Pointer image);
+        static native void gtk_image_menu_item_set_always_show_image(Pointer menuItem, boolean alwaysShow);
+        static native void gtk_check_menu_item_set_active(Pointer menuItem, boolean isActive);
+        static native Pointer gtk_image_new_from_file(String filename);
+        static native void g_signal_handler_block(Pointer instance, NativeLong handlerId);
+        static native void g_signal_handler_unblock(Pointer instance, NativeLong handlerId);
+        static native NativeLong g_signal_connect_data(Pointer instance, String detailedSignal, Callback handler, Pointer data,
+                                                       Pointer destroyData, int connectFlags);
+        static native int gdk_threads_add_idle(SourceFunc function, Pointer data);
+    }
+
+    private static final boolean isDirect;
+    static {
+        boolean direct;
+        try {
+            // forces the native methods to register
+            Class.forName(Direct.class.getName(), true, Direct.class.getClassLoader());
+            direct = true;
+        } catch (Throwable e) {
+            if (SystemTray.DEBUG) {
+                SystemTray.logger.debug("Unable to use direct-mapped GTK methods. Using the regular GTK methods instead.", e);
+            }
+            direct = false;
+        }
+
+        isDirect = direct;
+    }
+
+    static
+    void gtk_container_remove(final Pointer container, final Pointer widget) {
+        if (isDirect) {
+            Direct.gtk_container_remove(container, widget);
+        } else {
+            Gtk2.gtk_container_remove(container, widget);
+        }
+    }
+
+    static
+    void gtk_widget_show_all(final Pointer widget) {
+        if (isDirect) {
+            Direct.gtk_widget_show_all(widget);
+        } else {
+            Gtk2.gtk_widget_show_all(widget);
+        }
+    }
+
+    static
+    void gtk_widget_set_sensitive(final Pointer widget, final boolean sensitive) {
+        if (isDirect) {
+            Direct.gtk_widget_set_sensitive(widget, sensitive);
+        } else {
+            Gtk2.gtk_widget_set_sensitive(widget, sensitive);
+        }
+    }
+
+    static
+    void gtk_widget_set_tooltip_text(final Pointer widget, final String text) {
+        if (isDirect) {
+            Direct.gtk_widget_set_tooltip_text(widget, text);
+        } else {
+            Gtk2.gtk_widget_set_tooltip_text(widget, text);
+        }
+    }
+
+    static
+    void gtk_menu_item_set_label(final Pointer menuItem, final String label) {
+        if (isDirect) {
+            Direct.gtk_menu_item_set_label(menuItem, label);
+        } else {
+            Gtk2.gtk_menu_item_set_label(menuItem, label);
+        }
+    }
+
+    static
+    void gtk_menu_item_set_submenu(final Pointer menuItem, final Pointer submenu) {
+        if (isDirect) {
+            Direct.gtk_menu_item_set_submenu(menuItem, submenu);
+        } else {
+            Gtk2.gtk_menu_item_set_submenu(menuItem, submenu);
+        }
+    }
+
+    static
+    void gtk_image_menu_item_set_image(final Pointer menuItem, final Pointer image) {
+        if (isDirect) {
+            Direct.gtk_image_menu_item_set_image(menuItem, image);
+        } else {
+            Gtk2.gtk_image_menu_item_set_image(menuItem, image);
+        }
+    }
+
+    static
+    void gtk_image_menu_item_set_always_show_image(final Pointer menuItem, final boolean alwaysShow) {
+        if (isDirect) {
+            Direct.gtk_image_menu_item_set_always_show_image(menuItem, alwaysShow);
+        } else {
+            Gtk2.gtk_image_menu_item_set_always_show_image(menuItem, alwaysShow);
+        }
+    }
+
+    static
+    void gtk_check_menu_item_set_active(final Pointer menuItem, final boolean isActive) {
+        if (isDirect) {
+            Direct.gtk_check_menu_item_set_active(menuItem, isActive);
+        } else {
+            Gtk2.gtk_check_menu_item_set_active(menuItem, isActive);
+        }
+    }
+
+    static
+    Pointer gtk_image_new_from_file(final String filename) {
+        if (isDirect) {
+            return Direct.gtk_image_new_from_file(filename);
+        } else {
+            return Gtk2.gtk_image_new_from_file(filename);
+        }
+    }
+
+    static
+    void g_signal_handler_block(final Pointer instance, final long handlerId) {
+        if (isDirect) {
+            Direct.g_signal_handler_block(instance, new NativeLong(handlerId));
+        } else {
+            GObject.g_signal_handler_block(instance, handlerId);
+        }
+    }
+
+    static
+    void g_signal_handler_unblock(final Pointer instance, final long handlerId) {
+        if (isDirect) {
+            Direct.g_signal_handler_unblock(instance, new NativeLong(handlerId));
+        } else {
+            GObject.g_signal_handler_unblock(instance, handlerId);
+        }
+    }
+
+    static
+    long g_signal_connect_data(final Pointer instance, final String detailedSignal, final Callback handler, final Pointer data) {
+        if (isDirect) {
+            return Direct.g_signal_connect_data(instance, detailedSignal, handler, data, null, 0).longValue();
+        } else {
+            return GObject.g_signal_connect_data(instance, detailedSignal, handler, data, null, 0);
+        }
+    }
+
+    /**
+     * Schedules the callback to run once during a later iteration of the GTK main loop. Unlike GtkEventDispatch.dispatch, this never
+     * runs the callback immediately when already on the GTK dispatch thread.
+     *
+     * @return false if the callback could not be scheduled (the direct-mapped methods are not available)
+     */
+    static
+    boolean gdk_threads_add_idle(final SourceFunc function) {
+        if (isDirect) {
+            return Direct.gdk_threads_add_idle(function, null) != 0;
+        }
+        return false;
+    }
+
+    private
+    GtkDirect() {
+    }
+}
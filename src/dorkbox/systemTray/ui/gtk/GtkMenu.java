@@ -17,13 +17,13 @@ package dorkbox.systemTray.ui.gtk;
 
 import static dorkbox.jna.linux.Gtk.Gtk2;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.sun.jna.Pointer;
 
-import dorkbox.jna.linux.GtkEventDispatch;
 import dorkbox.systemTray.Checkbox;
 import dorkbox.systemTray.Entry;
 import dorkbox.systemTray.Menu;
@@ -31,6 +31,8 @@ import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.Separator;
 import dorkbox.systemTray.Status;
 import dorkbox.systemTray.peer.MenuPeer;
+import dorkbox.systemTray.util.MenuVisibility;
+import dorkbox.systemTray.util.PeerState;
 
 class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     // this is a list (that mirrors the actual list) BECAUSE we have to create/delete the entire menu in GTK every time something is changed
@@ -54,7 +56,7 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     // This is NOT a copy constructor!
     @SuppressWarnings("IncompleteCopyConstructor")
     GtkMenu() {
-        super(null);
+        super(null, new MenuVisibility(GtkBatchDispatch::dispatch));
         this.parent = null;
     }
 
@@ -62,7 +64,7 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     @SuppressWarnings("IncompleteCopyConstructor")
     private
     GtkMenu(final GtkMenu parent) {
-        super(Gtk2.gtk_image_menu_item_new_with_mnemonic("")); // is what is added to the parent menu (so images work)
+        super(Gtk2.gtk_image_menu_item_new_with_mnemonic(""), parent.menuVisibility); // is what is added to the parent menu (so images work)
         this.parent = parent;
     }
 
@@ -130,7 +132,7 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
 
         // binds sub-menu to entry (if it exists! it does not for the root menu)
         if (parent != null) {
-            Gtk2.gtk_menu_item_set_submenu(_native, _nativeMenu);
+            GtkDirect.gtk_menu_item_set_submenu(_native, _nativeMenu);
         }
 
         if (parent != null && recursiveCreateParentMenu) {
@@ -197,7 +199,7 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     public
     void add(final Menu parentMenu, final Entry entry, final int index) {
         // must always be called on the GTK dispatch. This must be dispatchAndWait() so it will properly executed immediately
-        GtkEventDispatch.dispatchAndWait(()->{
+        GtkBatchDispatch.dispatchAndWait(()->{
             // some GTK libraries DO NOT let us add items AFTER the menu has been attached to the indicator.
             // To work around this issue, we destroy then recreate the menu every time something is changed.
 
@@ -253,7 +255,7 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
 
             // only call show on the ROOT menu!
             if (parent == null) {
-                Gtk2.gtk_widget_show_all(_nativeMenu);
+                GtkDirect.gtk_widget_show_all(_nativeMenu);
             }
         });
     }
@@ -269,23 +271,29 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     public
     void setImage(final MenuItem menuItem) {
         // is overridden by system tray
-        setLegitImage(menuItem.getImage() != null);
+        final File newImageFile = menuItem.getImage();
+        if (!peerState.update(PeerState.IMAGE, newImageFile)) {
+            return;
+        }
+
+        setLegitImage(newImageFile != null);
 
-        GtkEventDispatch.dispatch(()->{
+        menuVisibility.dispatch(this, PeerState.IMAGE, ()->{
             if (image != null) {
-                Gtk2.gtk_container_remove(_native, image); // will automatically get destroyed if no other references to it
+                GtkDirect.gtk_container_remove(_native, image); // will automatically get destroyed if no other references to it
+                GtkPixbufCache.releaseImage(image);
                 image = null;
             }
 
-            if (menuItem.getImage() != null) {
-                image = Gtk2.gtk_image_new_from_file(menuItem.getImage().getAbsolutePath());
-                Gtk2.gtk_image_menu_item_set_image(_native, image);
+            if (newImageFile != null) {
+                image = GtkPixbufCache.newImage(newImageFile);
+                GtkDirect.gtk_image_menu_item_set_image(_native, image);
 
                 //  must always re-set always-show after setting the image
-                Gtk2.gtk_image_menu_item_set_always_show_image(_native, true);
+                GtkDirect.gtk_image_menu_item_set_always_show_image(_native, true);
             }
 
-            Gtk2.gtk_widget_show_all(_native);
+            GtkDirect.gtk_widget_show_all(_native);
         });
     }
 
@@ -294,7 +302,12 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     public
     void setEnabled(final MenuItem menuItem) {
         // is overridden by system tray
-        GtkEventDispatch.dispatch(()->Gtk2.gtk_widget_set_sensitive(_native, menuItem.getEnabled()));
+        final boolean enabled = menuItem.getEnabled();
+        if (!peerState.update(PeerState.ENABLED, enabled)) {
+            return;
+        }
+
+        menuVisibility.dispatch(this, PeerState.ENABLED, ()->GtkDirect.gtk_widget_set_sensitive(_native, enabled));
     }
 
     // is overridden in tray impl
@@ -327,9 +340,13 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
             textWithMnemonic = menuItem.getText();
         }
 
-        GtkEventDispatch.dispatch(()->{
-            Gtk2.gtk_menu_item_set_label(_native, textWithMnemonic);
-            Gtk2.gtk_widget_show_all(_native);
+        if (!peerState.update(PeerState.TEXT, textWithMnemonic)) {
+            return;
+        }
+
+        menuVisibility.dispatch(this, PeerState.TEXT, ()->{
+            GtkDirect.gtk_menu_item_set_label(_native, textWithMnemonic);
+            GtkDirect.gtk_widget_show_all(_native);
         });
     }
 
@@ -358,10 +375,15 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     @Override
     public
     void setTooltip(final MenuItem menuItem) {
-        GtkEventDispatch.dispatch(()->{
+        final String tooltip = menuItem.getTooltip();
+        if (!peerState.update(PeerState.TOOLTIP, tooltip)) {
+            return;
+        }
+
+        menuVisibility.dispatch(this, PeerState.TOOLTIP, ()->{
             // NOTE: this will not work for AppIndicator tray types!
             // null will remove the tooltip
-            Gtk2.gtk_widget_set_tooltip_text(_native, menuItem.getTooltip());
+            GtkDirect.gtk_widget_set_tooltip_text(_native, tooltip);
         });
     }
 
@@ -383,7 +405,9 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
     @Override
     public
     void remove() {
-        GtkEventDispatch.dispatch(()->{
+        menuVisibility.discard(this);
+
+        GtkBatchDispatch.dispatch(()->{
             GtkMenu parent = getParent();
 
             if (parent != null) {
@@ -394,9 +418,15 @@ class GtkMenu extends GtkBaseMenuItem implements MenuPeer {
             // delete all of the children of this submenu (must happen before the menuEntry is removed)
             obliterateMenu(); // must be on EDT
 
+            if (image != null) {
+                // the image is destroyed with the menu entry
+                GtkPixbufCache.releaseImage(image);
+                image = null;
+            }
+
             if (parent != null) {
                 // remove the gtk entry item from our menu NATIVE components
-                Gtk2.gtk_menu_item_set_submenu(_native, null);
+                GtkDirect.gtk_menu_item_set_submenu(_native, null);
 
                 // have to rebuild the menu now...
                 parent.deleteMenu(true);  // must be on EDT
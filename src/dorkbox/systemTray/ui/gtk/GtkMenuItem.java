@@ -19,19 +19,20 @@ import static dorkbox.jna.linux.Gtk.Gtk2;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
 
 import com.sun.jna.Pointer;
 
-import dorkbox.jna.linux.GCallback;
-import dorkbox.jna.linux.GObject;
 import dorkbox.jna.linux.GtkEventDispatch;
 import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.MenuItemPeer;
 import dorkbox.systemTray.util.EventDispatch;
+import dorkbox.systemTray.util.PeerState;
 
-class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
+class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GtkActivateTrampoline.Listener {
     private final GtkMenu parent;
+    private final int activateId;
 
     // these have to be volatile, because they can be changed from any thread
     private volatile ActionListener callback;
@@ -47,23 +48,23 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
      * this is a FLOATING reference. See: https://developer.gnome.org/gobject/stable/gobject-The-Base-Object-Type.html#floating-ref
      */
     GtkMenuItem(final GtkMenu parent) {
-        super(Gtk2.gtk_image_menu_item_new_with_mnemonic(""));
+        super(Gtk2.gtk_image_menu_item_new_with_mnemonic(""), parent.menuVisibility);
 
         this.parent = parent;
-        GObject.g_signal_connect_object(_native, "activate", this, null, 0);
+
+        activateId = GtkActivateTrampoline.add(this);
+        GtkActivateTrampoline.connect(_native, activateId);
     }
 
 
     // called by native code, always on the GTK event dispatch thread
     @Override
     public
-    int callback(final Pointer instance, final Pointer data) {
+    void onActivate() {
         ActionListener callback = this.callback;
         if (callback != null) {
             GtkEventDispatch.proxyClick(callback);
         }
-
-        return Gtk2.TRUE;
     }
 
     // NOTE: XFCE used to use appindicator3, which DOES NOT support images in the menu. This change was reverted.
@@ -73,25 +74,30 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
     @Override
     public
     void setImage(final MenuItem menuItem) {
+        final File newImageFile = menuItem.getImage();
+        if (!peerState.update(PeerState.IMAGE, newImageFile)) {
+            return;
+        }
+
         final boolean hadImage = hasImage();
-        setLegitImage(menuItem.getImage() != null);
+        setLegitImage(newImageFile != null);
 
-        GtkEventDispatch.dispatch(()->{
+        menuVisibility.dispatch(this, PeerState.IMAGE, ()->{
             if (image != null) {
-                Gtk2.gtk_container_remove(_native, image);  // will automatically get destroyed if no other references to it
+                GtkDirect.gtk_container_remove(_native, image);  // will automatically get destroyed if no other references to it
+                GtkPixbufCache.releaseImage(image);
                 image = null;
             }
 
-            if (menuItem.getImage() != null) {
+            if (newImageFile != null) {
                 // always remove the spacer image in case it's there. The spacer image will correctly added when the menu is created.
                 removeSpacerImage();
 
-                image = Gtk2.gtk_image_new_from_file(menuItem.getImage()
-                                                             .getAbsolutePath());
-                Gtk2.gtk_image_menu_item_set_image(_native, image);
+                image = GtkPixbufCache.newImage(newImageFile);
+                GtkDirect.gtk_image_menu_item_set_image(_native, image);
 
                 //  must always re-set always-show after setting the image
-                Gtk2.gtk_image_menu_item_set_always_show_image(_native, true);
+                GtkDirect.gtk_image_menu_item_set_always_show_image(_native, true);
             }
             else if (hadImage) {
                 // if at one point, we had an image, we should set the spacer image back, so that menu spacing looks correct.
@@ -99,14 +105,19 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
                 addSpacerImage();
             }
 
-            Gtk2.gtk_widget_show_all(_native);
+            GtkDirect.gtk_widget_show_all(_native);
         });
     }
 
     @Override
     public
     void setEnabled(final MenuItem menuItem) {
-        GtkEventDispatch.dispatch(()->Gtk2.gtk_widget_set_sensitive(_native, menuItem.getEnabled()));
+        final boolean enabled = menuItem.getEnabled();
+        if (!peerState.update(PeerState.ENABLED, enabled)) {
+            return;
+        }
+
+        menuVisibility.dispatch(this, PeerState.ENABLED, ()->GtkDirect.gtk_widget_set_sensitive(_native, enabled));
     }
 
     @SuppressWarnings("Duplicates")
@@ -137,9 +148,13 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
             textWithMnemonic = menuItem.getText();
         }
 
-        GtkEventDispatch.dispatch(()->{
-            Gtk2.gtk_menu_item_set_label(_native, textWithMnemonic);
-            Gtk2.gtk_widget_show_all(_native);
+        if (!peerState.update(PeerState.TEXT, textWithMnemonic)) {
+            return;
+        }
+
+        menuVisibility.dispatch(this, PeerState.TEXT, ()->{
+            GtkDirect.gtk_menu_item_set_label(_native, textWithMnemonic);
+            GtkDirect.gtk_widget_show_all(_native);
         });
     }
 
@@ -157,7 +172,7 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
                 public
                 void actionPerformed(ActionEvent e) {
                     // we want it to run on our own with our own action event info (so it is consistent across all platforms)
-                    EventDispatch.runLater(()->{
+                    EventDispatch.runLater(menuItem, ()->{
                         try {
                             cb.actionPerformed(new ActionEvent(menuItem, ActionEvent.ACTION_PERFORMED, ""));
                         } catch (Throwable throwable) {
@@ -186,10 +201,15 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
     @Override
     public
     void setTooltip(final MenuItem menuItem) {
-        GtkEventDispatch.dispatch(()->{
+        final String tooltip = menuItem.getTooltip();
+        if (!peerState.update(PeerState.TOOLTIP, tooltip)) {
+            return;
+        }
+
+        menuVisibility.dispatch(this, PeerState.TOOLTIP, ()->{
             // NOTE: this will not work for AppIndicator tray types!
             // null will remove the tooltip
-            Gtk2.gtk_widget_set_tooltip_text(_native, menuItem.getTooltip());
+            GtkDirect.gtk_widget_set_tooltip_text(_native, tooltip);
         });
     }
 
@@ -197,15 +217,17 @@ class GtkMenuItem extends GtkBaseMenuItem implements MenuItemPeer, GCallback {
     @Override
     public
     void remove() {
-        GtkEventDispatch.dispatch(()->{
+        GtkBatchDispatch.dispatch(()->{
             GtkMenuItem.super.remove();
 
             callback = null;
 
-            Gtk2.gtk_container_remove(parent._nativeMenu, _native); // will automatically get destroyed if no other references to it
+            GtkDirect.gtk_container_remove(parent._nativeMenu, _native); // will automatically get destroyed if no other references to it
+            GtkActivateTrampoline.remove(activateId);
 
             if (image != null) {
-                Gtk2.gtk_container_remove(_native, image); // will automatically get destroyed if no other references to it
+                GtkDirect.gtk_container_remove(_native, image); // will automatically get destroyed if no other references to it
+                GtkPixbufCache.releaseImage(image);
                 image = null;
             }
 
@@ -21,11 +21,10 @@ import java.awt.Color;
 import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
 
 import com.sun.jna.Pointer;
 
-import dorkbox.jna.linux.GCallback;
-import dorkbox.jna.linux.GObject;
 import dorkbox.jna.linux.GtkEventDispatch;
 import dorkbox.os.OS;
 import dorkbox.systemTray.Checkbox;
@@ -34,9 +33,11 @@ import dorkbox.systemTray.peer.CheckboxPeer;
 import dorkbox.systemTray.util.EventDispatch;
 import dorkbox.systemTray.util.GtkTheme;
 import dorkbox.systemTray.util.HeavyCheckMark;
+import dorkbox.systemTray.util.MenuVisibility;
+import dorkbox.systemTray.util.PeerState;
 import dorkbox.systemTray.util.SizeAndScaling;
 
-class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCallback {
+class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GtkActivateTrampoline.Listener {
     private static volatile String checkedFile;
 
     // here, it doesn't matter what size the image is, as long as there is an image, the text in the menu will be shifted correctly
@@ -71,12 +72,14 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
     private volatile ActionListener callback;
     private volatile boolean isChecked = false;
     private volatile Pointer checkedImage;
+    private volatile File checkedImageFile;
     private volatile Pointer image;
 
     // The mnemonic will ONLY show-up once a menu entry is selected. IT WILL NOT show up before then!
     // AppIndicators will only show if you use the keyboard to navigate
     // GtkStatusIconTray will show on mouse+keyboard movement
     private volatile char mnemonicKey = 0;
+    private final int activateId;
     private final long handlerId;
 
 
@@ -99,11 +102,12 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
     GtkMenuItemCheckbox(final GtkMenu parent) {
         super(useFakeCheckMark ?
                 Gtk2.gtk_image_menu_item_new_with_mnemonic("") :
-                Gtk2.gtk_check_menu_item_new_with_mnemonic(""));
+                Gtk2.gtk_check_menu_item_new_with_mnemonic(""), parent.menuVisibility);
 
         this.parent = parent;
 
-        handlerId = GObject.g_signal_connect_object(_native, "activate", this, null, 0);
+        activateId = GtkActivateTrampoline.add(this);
+        handlerId = GtkActivateTrampoline.connect(_native, activateId);
 
         if (useFakeCheckMark) {
             if (checkedFile == null) {
@@ -135,22 +139,20 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
 
             setCheckedIconForFakeCheckMarks();
         } else {
-            GObject.g_signal_handler_block(_native, handlerId);
-            Gtk2.gtk_check_menu_item_set_active(_native, false);
-            GObject.g_signal_handler_unblock(_native, handlerId);
+            GtkDirect.g_signal_handler_block(_native, handlerId);
+            GtkDirect.gtk_check_menu_item_set_active(_native, false);
+            GtkDirect.g_signal_handler_unblock(_native, handlerId);
         }
     }
 
     // called by native code ONLY
     @Override
     public
-    int callback(final Pointer instance, final Pointer data) {
+    void onActivate() {
         ActionListener callback = this.callback;
         if (callback != null) {
             GtkEventDispatch.proxyClick(callback);
         }
-
-        return Gtk2.TRUE;
     }
 
     @Override
@@ -168,7 +170,12 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
     @Override
     public
     void setEnabled(final Checkbox menuItem) {
-        GtkEventDispatch.dispatch(()->Gtk2.gtk_widget_set_sensitive(_native, menuItem.getEnabled()));
+        final boolean enabled = menuItem.getEnabled();
+        if (!peerState.update(PeerState.ENABLED, enabled)) {
+            return;
+        }
+
+        menuVisibility.dispatch(this, PeerState.ENABLED, ()->GtkDirect.gtk_widget_set_sensitive(_native, enabled));
     }
 
     @Override
@@ -194,9 +201,13 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
             textWithMnemonic = menuItem.getText();
         }
 
-        GtkEventDispatch.dispatch(()->{
-            Gtk2.gtk_menu_item_set_label(_native, textWithMnemonic);
-            Gtk2.gtk_widget_show_all(_native);
+        if (!peerState.update(PeerState.TEXT, textWithMnemonic)) {
+            return;
+        }
+
+        menuVisibility.dispatch(this, PeerState.TEXT, ()->{
+            GtkDirect.gtk_menu_item_set_label(_native, textWithMnemonic);
+            GtkDirect.gtk_widget_show_all(_native);
         });
     }
 
@@ -217,7 +228,7 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
                     menuItem.setChecked(!isChecked);
 
                     // we want it to run on our own with our own action event info (so it is consistent across all platforms)
-                    EventDispatch.runLater(()->{
+                    EventDispatch.runLater(menuItem, ()->{
                         try {
                             cb.actionPerformed(new ActionEvent(menuItem, ActionEvent.ACTION_PERFORMED, ""));
                         } catch (Throwable throwable) {
@@ -238,7 +249,7 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
         if (checked != this.isChecked) {
             this.isChecked = checked;
 
-            GtkEventDispatch.dispatch(()->{
+            menuVisibility.dispatch(this, MenuVisibility.CHECKED, ()->{
                 if (useFakeCheckMark) {
                     setCheckedIconForFakeCheckMarks();
                 } else {
@@ -246,9 +257,9 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
                     // we assume this is consistent across ALL versions and variants of GTK
                     // https://github.com/GNOME/gtk/blob/master/gtk/gtkcheckmenuitem.c#L317
                     // this disables the signal handler, then enables it
-                    GObject.g_signal_handler_block(_native, handlerId);
-                    Gtk2.gtk_check_menu_item_set_active(_native, isChecked);
-                    GObject.g_signal_handler_unblock(_native, handlerId);
+                    GtkDirect.g_signal_handler_block(_native, handlerId);
+                    GtkDirect.gtk_check_menu_item_set_active(_native, isChecked);
+                    GtkDirect.g_signal_handler_unblock(_native, handlerId);
                 }
             });
         }
@@ -257,10 +268,15 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
     @Override
     public
     void setTooltip(final Checkbox menuItem) {
-        GtkEventDispatch.dispatch(()->{
+        final String tooltip = menuItem.getTooltip();
+        if (!peerState.update(PeerState.TOOLTIP, tooltip)) {
+            return;
+        }
+
+        menuVisibility.dispatch(this, PeerState.TOOLTIP, ()->{
             // NOTE: this will not work for AppIndicator tray types!
             // null will remove the tooltip
-            Gtk2.gtk_widget_set_tooltip_text(_native, menuItem.getTooltip());
+            GtkDirect.gtk_widget_set_tooltip_text(_native, tooltip);
         });
     }
 
@@ -268,23 +284,25 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
     private
     void setCheckedIconForFakeCheckMarks() {
         if (checkedImage != null) {
-            Gtk2.gtk_container_remove(_native, checkedImage);  // will automatically get destroyed if no other references to it
+            GtkDirect.gtk_container_remove(_native, checkedImage);  // will automatically get destroyed if no other references to it
+            GtkPixbufCache.releaseImage(checkedImage);
             checkedImage = null;
         }
 
 
         if (this.isChecked) {
-            checkedImage = Gtk2.gtk_image_new_from_file(checkedFile);
+            checkedImageFile = new File(checkedFile);
         } else {
-            checkedImage = Gtk2.gtk_image_new_from_file(uncheckedFile);
+            checkedImageFile = new File(uncheckedFile);
         }
+        checkedImage = GtkPixbufCache.newImage(checkedImageFile);
 
-        Gtk2.gtk_image_menu_item_set_image(_native, checkedImage);
+        GtkDirect.gtk_image_menu_item_set_image(_native, checkedImage);
 
         //  must always re-set always-show after setting the image
-        Gtk2.gtk_image_menu_item_set_always_show_image(_native, true);
+        GtkDirect.gtk_image_menu_item_set_always_show_image(_native, true);
 
-        Gtk2.gtk_widget_show_all(_native);
+        GtkDirect.gtk_widget_show_all(_native);
     }
 
     @Override
@@ -305,15 +323,22 @@ class GtkMenuItemCheckbox extends GtkBaseMenuItem implements CheckboxPeer, GCall
     @Override
     public
     void remove() {
-        GtkEventDispatch.dispatch(()->{
+        GtkBatchDispatch.dispatch(()->{
             GtkMenuItemCheckbox.super.remove();
 
             callback = null;
 
-            Gtk2.gtk_container_remove(parent._nativeMenu, _native);  // will automatically get destroyed if no other references to it
+            GtkDirect.gtk_container_remove(parent._nativeMenu, _native);  // will automatically get destroyed if no other references to it
+            GtkActivateTrampoline.remove(activateId);
+
+            if (checkedImage != null) {
+                // the image is destroyed with the menu entry
+                GtkPixbufCache.releaseImage(checkedImage);
+                checkedImage = null;
+            }
 
             if (image != null) {
-                Gtk2.gtk_container_remove(_native, image); // will automatically get destroyed if no other references to it
+                GtkDirect.gtk_container_remove(_native, image); // will automatically get destroyed if no other references to it
                 image = null;
             }
 
@@ -17,7 +17,6 @@ package dorkbox.systemTray.ui.gtk;
 
 import static dorkbox.jna.linux.Gtk.Gtk2;
 
-import dorkbox.jna.linux.GtkEventDispatch;
 import dorkbox.systemTray.peer.SeparatorPeer;
 
 class GtkMenuItemSeparator extends GtkBaseMenuItem implements SeparatorPeer {
@@ -29,7 +28,7 @@ class GtkMenuItemSeparator extends GtkBaseMenuItem implements SeparatorPeer {
      * this is a FLOATING reference. See: https://developer.gnome.org/gobject/stable/gobject-The-Base-Object-Type.html#floating-ref
      */
     GtkMenuItemSeparator(final GtkMenu parent) {
-        super(Gtk2.gtk_separator_menu_item_new());
+        super(Gtk2.gtk_separator_menu_item_new(), parent.menuVisibility);
         this.parent = parent;
     }
 
@@ -37,8 +36,8 @@ class GtkMenuItemSeparator extends GtkBaseMenuItem implements SeparatorPeer {
     @Override
     public
     void remove() {
-        GtkEventDispatch.dispatch(()->{
-            Gtk2.gtk_container_remove(parent._nativeMenu, _native);  // will automatically get destroyed if no other references to it
+        GtkBatchDispatch.dispatch(()->{
+            GtkDirect.gtk_container_remove(parent._nativeMenu, _native);  // will automatically get destroyed if no other references to it
 
             parent.remove(GtkMenuItemSeparator.this);
         });
@@ -17,9 +17,9 @@ package dorkbox.systemTray.ui.gtk;
 
 import static dorkbox.jna.linux.Gtk.Gtk2;
 
-import dorkbox.jna.linux.GtkEventDispatch;
 import dorkbox.systemTray.Status;
 import dorkbox.systemTray.peer.StatusPeer;
+import dorkbox.systemTray.util.PeerState;
 
 // you might wonder WHY this extends MenuEntryItem -- the reason is that an AppIndicator "status" will be offset from everyone else,
 // where a GtkStatusIconTray + SwingUI will have everything lined up. (with or without icons).  This is to normalize how it looks
@@ -32,7 +32,7 @@ class GtkMenuItemStatus extends GtkBaseMenuItem implements StatusPeer {
      * this is a FLOATING reference. See: https://developer.gnome.org/gobject/stable/gobject-The-Base-Object-Type.html#floating-ref
      */
     GtkMenuItemStatus(final GtkMenu parent) {
-        super(Gtk2.gtk_image_menu_item_new_with_mnemonic(""));
+        super(Gtk2.gtk_image_menu_item_new_with_mnemonic(""), parent.menuVisibility);
         this.parent = parent;
 
         // need that extra space so it matches windows/mac
@@ -42,14 +42,19 @@ class GtkMenuItemStatus extends GtkBaseMenuItem implements StatusPeer {
     @Override
     public
     void setText(final Status menuItem) {
-        GtkEventDispatch.dispatch(()->{
+        final String text = menuItem.getText();
+        if (!peerState.update(PeerState.TEXT, text)) {
+            return;
+        }
+
+        menuVisibility.dispatch(this, PeerState.TEXT, ()->{
             // AppIndicator strips out markup text.
             // https://mail.gnome.org/archives/commits-list/2016-March/msg05444.html
 
-            Gtk2.gtk_menu_item_set_label(_native, menuItem.getText());
-            Gtk2.gtk_widget_show_all(_native);
+            GtkDirect.gtk_menu_item_set_label(_native, text);
+            GtkDirect.gtk_widget_show_all(_native);
 
-            Gtk2.gtk_widget_set_sensitive(_native, false);
+            GtkDirect.gtk_widget_set_sensitive(_native, false);
         });
     }
 
@@ -57,10 +62,10 @@ class GtkMenuItemStatus extends GtkBaseMenuItem implements StatusPeer {
     @Override
     public
     void remove() {
-        GtkEventDispatch.dispatch(()->{
+        GtkBatchDispatch.dispatch(()->{
             GtkMenuItemStatus.super.remove();
 
-            Gtk2.gtk_container_remove(parent._nativeMenu, _native); // will automatically get destroyed if no other references to it
+            GtkDirect.gtk_container_remove(parent._nativeMenu, _native); // will automatically get destroyed if no other references to it
 
             parent.remove(GtkMenuItemStatus.this);
         });
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.ui.gtk;
+
+import static dorkbox.jna.linux.Gtk.Gtk2;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.sun.jna.Native;
+import com.sun.jna.NativeLibrary;
+import com.sun.jna.Pointer;
+
+import dorkbox.systemTray.SystemTray;
+
+/**
+ * Reference counted cache of decoded images (GdkPixbuf), so that an image file is only decoded once -- no matter how many menu
+ * entries use it, or how many times it is set.
+ * <p>
+ * When an image is no longer used, it is kept around (up to {@link #MAX_UNUSED}) in case it is used again, for example by an animation.
+ * <p>
+ * This is ONLY accessed on the GTK dispatch thread, so there is no synchronization.
+ */
+final
+class GtkPixbufCache {
+    // the maximum number of decoded images that are kept, even though nothing is using them
+    private static final int MAX_UNUSED = 32;
+
+    static final
+    class Pixbuf {
+        // GTK (and gdk-pixbuf) are already loaded (and global), so we look these up in the current process
+        static {
+            Native.register(NativeLibrary.getProcess());
+        }
+
+        static native Pointer gdk_pixbuf_new_from_file(String filename, Pointer error);
+        static native Pointer gtk_image_new_from_pixbuf(Pointer pixbuf);
+        static native void gtk_status_icon_set_from_pixbuf(Pointer statusIcon, Pointer pixbuf);
+        static native void g_object_unref(Pointer object);
+    }
+
+    private static final
+    class Entry {
+        Pointer pixbuf;
+        long lastModified;
+        int references = 0;
+
+        Entry(final Pointer pixbuf, final long lastModified) {
+            this.pixbuf = pixbuf;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static final boolean isAvailable;
+    static {
+        boolean available;
+        try {
+            // forces the native methods to register
+            Class.forName(Pixbuf.class.getName(), true, Pixbuf.class.getClassLoader());
+            available = true;
+        } catch (Throwable e) {
+            SystemTray.logger.error("Unable to load GdkPixbuf methods. Images will be loaded from disk instead.", e);
+            available = false;
+        }
+
+        isAvailable = available;
+    }
+
+    private static final Map<String, Entry> pixbufs = new HashMap<>();
+
+    // the image widgets (created by newImage) that hold a reference, and the path of their image
+    private static final Map<Pointer, String> images = new HashMap<>();
+
+    // access-ordered, so the least recently used is first
+    private static final LinkedHashMap<String, Entry> unused = new LinkedHashMap<>(16, 0.75F, true);
+
+    /**
+     * Gets (and references) the decoded image for a file. Every call to this must be balanced with a call to {@link #release(File)}
+     *
+     * @return the pixbuf, or null if it could not be loaded
+     */
+    static
+    Pointer acquire(final File file) {
+        if (!isAvailable) {
+            return null;
+        }
+
+        String path = file.getAbsolutePath();
+        long lastModified = file.lastModified();
+
+        Entry entry = pixbufs.get(path);
+        if (entry == null) {
+            entry = unused.remove(path);
+
+            if (entry == null) {
+                Pointer pixbuf = load(path);
+                if (pixbuf == null) {
+                    return null;
+                }
+
+                entry = new Entry(pixbuf, lastModified);
+            }
+
+            pixbufs.put(path, entry);
+        }
+
+        if (entry.lastModified != lastModified) {
+            // the file was changed (this only happens with images that are not resized+cached). Widgets that are using the old
+            // image have their own reference to it, so it is safe to replace it here.
+            Pointer pixbuf = load(path);
+            if (pixbuf == null) {
+                if (entry.references == 0) {
+                    pixbufs.remove(path);
+                    Pixbuf.g_object_unref(entry.pixbuf);
+                }
+                return null;
+            }
+
+            Pixbuf.g_object_unref(entry.pixbuf);
+            entry.pixbuf = pixbuf;
+            entry.lastModified = lastModified;
+        }
+
+        entry.references++;
+        return entry.pixbuf;
+    }
+
+    private static
+    Pointer load(final String path) {
+        Pointer pixbuf = Pixbuf.gdk_pixbuf_new_from_file(path, null);
+        if (pixbuf == null && SystemTray.DEBUG) {
+            SystemTray.logger.debug("Unable to decode image {}", path);
+        }
+
+        return pixbuf;
+    }
+
+    /**
+     * Releases the reference taken by {@link #acquire(File)} or {@link #setStatusIcon(Pointer, File)}
+     */
+    static
+    void release(final File file) {
+        if (!isAvailable || file == null) {
+            return;
+        }
+
+        release(file.getAbsolutePath());
+    }
+
+    /**
+     * Releases the reference taken by {@link #newImage(File)} for the image widget, if it took one.
+     */
+    static
+    void releaseImage(final Pointer image) {
+        if (image == null) {
+            return;
+        }
+
+        String path = images.remove(image);
+        if (path != null) {
+            release(path);
+        }
+    }
+
+    private static
+    void release(final String path) {
+        Entry entry = pixbufs.get(path);
+        if (entry == null) {
+            // this was loaded from disk instead
+            return;
+        }
+
+        entry.references--;
+        if (entry.references <= 0) {
+            pixbufs.remove(path);
+            unused.put(path, entry);
+
+            if (unused.size() > MAX_UNUSED) {
+                Iterator<Entry> iterator = unused.values().iterator();
+                Entry eldest = iterator.next();
+                iterator.remove();
+
+                Pixbuf.g_object_unref(eldest.pixbuf);
+            }
+        }
+    }
+
+    /**
+     * Creates a new GtkImage widget for the file, using the cached pixbuf if possible. The image must be released (via
+     * {@link #releaseImage(Pointer)}) when the widget is removed.
+     */
+    static
+    Pointer newImage(final File file) {
+        Pointer pixbuf = acquire(file);
+        if (pixbuf != null) {
+            // the image widget takes its own reference to the pixbuf
+            Pointer image = Pixbuf.gtk_image_new_from_pixbuf(pixbuf);
+            images.put(image, file.getAbsolutePath());
+            return image;
+        }
+
+        // this does not reference anything in the cache, so releasing it does nothing
+        return GtkDirect.gtk_image_new_from_file(file.getAbsolutePath());
+    }
+
+    /**
+     * Sets the status icon image, using the cached pixbuf if possible.
+     *
+     * @return true if this took a reference to the cached image, which must be released (via {@link #release(File)}) when it is
+     *         replaced. False if the image was loaded from disk instead.
+     */
+    static
+    boolean setStatusIcon(final Pointer statusIcon, final File file) {
+        Pointer pixbuf = acquire(file);
+        if (pixbuf != null) {
+            // the status icon takes its own reference to the pixbuf
+            Pixbuf.gtk_status_icon_set_from_pixbuf(statusIcon, pixbuf);
+            return true;
+        }
+
+        Gtk2.gtk_status_icon_set_from_file(statusIcon, file.getAbsolutePath());
+        return false;
+    }
+
+    private
+    GtkPixbufCache() {
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.ui.gtk;
+
+import dorkbox.systemTray.SystemTray.TrayType;
+import dorkbox.systemTray.Tray;
+import dorkbox.systemTray.util.ImageResizeUtil;
+import dorkbox.systemTray.util.TrayProvider;
+
+/**
+ * Creates the GtkStatusIcon tray.
+ */
+@SuppressWarnings("unused")
+public final
+class GtkTrayProvider extends TrayProvider {
+    @Override
+    public
+    TrayType getType() {
+        return TrayType.Gtk;
+    }
+
+    @Override
+    public
+    Tray create(final String trayName, final ImageResizeUtil imageResizeUtil, final Runnable onRemoveEvent) {
+        return new _GtkStatusIconNativeTray(trayName, imageResizeUtil, onRemoveEvent);
+    }
+}
@@ -141,7 +141,7 @@ class _AppIndicatorNativeTray extends Tray {
             @Override
             public
             void setEnabled(final MenuItem menuItem) {
-                GtkEventDispatch.dispatch(()->{
+                GtkBatchDispatch.dispatch(()->{
                     boolean enabled = menuItem.getEnabled();
 
                     if (visible && !enabled) {
@@ -164,7 +164,7 @@ class _AppIndicatorNativeTray extends Tray {
                     return;
                 }
 
-                GtkEventDispatch.dispatch(()->{
+                GtkBatchDispatch.dispatch(()->{
                     appIndicator.app_indicator_set_icon(imageFile.getAbsolutePath());
 
                     if (!isActive) {
@@ -199,7 +199,7 @@ class _AppIndicatorNativeTray extends Tray {
                 if (!shuttingDown.getAndSet(true)) {
                     super.remove();
 
-                    GtkEventDispatch.dispatchAndWait(()->{
+                    GtkBatchDispatch.dispatchAndWait(()->{
                         // must happen asap, so our hook properly notices we are in shutdown mode
                         final AppIndicatorInstanceStruct savedAppIndicator = appIndicator;
                         appIndicator = null;
@@ -215,7 +215,7 @@ class _AppIndicatorNativeTray extends Tray {
             }
         };
 
-        GtkEventDispatch.dispatchAndWait(()->{
+        GtkBatchDispatch.dispatchAndWait(()->{
             String id = "DBST" + System.nanoTime();
 
             // we initialize with a blank image. Throws RuntimeException if not possible (this should never happen!)
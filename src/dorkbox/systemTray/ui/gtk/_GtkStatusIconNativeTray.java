@@ -22,6 +22,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.sun.jna.Pointer;
 
+import dorkbox.jna.linux.GCallback;
 import dorkbox.jna.linux.GEventCallback;
 import dorkbox.jna.linux.GObject;
 import dorkbox.jna.linux.GtkEventDispatch;
@@ -48,6 +49,16 @@ class _GtkStatusIconNativeTray extends Tray {
     // see: https://github.com/java-native-access/jna/blob/master/www/CallbacksAndClosures.md
     private GEventCallback gtkCallback = null;
 
+    // lets the menu know when it has been closed, so that changes to the menu entries can wait until it is shown again
+    private final GCallback menuHiddenCallback = new GCallback() {
+        @Override
+        public
+        int callback(final Pointer instance, final Pointer data) {
+            gtkMenu.menuVisibility.hidden();
+            return Gtk2.TRUE;
+        }
+    };
+
     // This is required if we have JavaFX or SWT shutdown hooks (to prevent us from shutting down twice...)
     private final AtomicBoolean shuttingDown = new AtomicBoolean();
 
@@ -56,6 +67,9 @@ class _GtkStatusIconNativeTray extends Tray {
     // is the system tray visible or not.
     private volatile boolean visible = true;
     private volatile File imageFile;
+
+    // the image currently set on the status icon. Only accessed on the GTK dispatch thread
+    private File trayIconFile;
     private volatile String tooltipText = "";
 
     private final GtkMenu gtkMenu;
@@ -71,10 +85,21 @@ class _GtkStatusIconNativeTray extends Tray {
 
         // we override various methods, because each tray implementation is SLIGHTLY different. This allows us customization.
         gtkMenu = new GtkMenu() {
+            /**
+             * The menu is re-created every time an entry is added or removed.
+             *
+             * ALWAYS CALLED ON THE EDT
+             */
+            @Override
+            protected
+            void onMenuAdded(final Pointer menu) {
+                GObject.g_signal_connect_object(menu, "deactivate", menuHiddenCallback, null, 0);
+            }
+
             @Override
             public
             void setEnabled(final MenuItem menuItem) {
-                GtkEventDispatch.dispatch(()->{
+                GtkBatchDispatch.dispatch(()->{
                     boolean enabled = menuItem.getEnabled();
 
                     if (visible && !enabled) {
@@ -96,8 +121,14 @@ class _GtkStatusIconNativeTray extends Tray {
                     return;
                 }
 
-                GtkEventDispatch.dispatch(()->{
-                    Gtk2.gtk_status_icon_set_from_file(trayIcon, imageFile.getAbsolutePath());
+                GtkBatchDispatch.dispatch(()->{
+                    // the previous image is released AFTER the new one is set, so that the same image is not decoded again
+                    File previousImage = trayIconFile;
+                    File newImage = imageFile;
+
+                    // only remembered if it is referenced, otherwise releasing it could release someone else's reference
+                    trayIconFile = GtkPixbufCache.setStatusIcon(trayIcon, newImage) ? newImage : null;
+                    GtkPixbufCache.release(previousImage);
 
                     if (!isActive) {
                         isActive = true;
@@ -130,7 +161,7 @@ class _GtkStatusIconNativeTray extends Tray {
 
                 tooltipText = text;
 
-                GtkEventDispatch.dispatch(()->Gtk2.gtk_status_icon_set_tooltip_text(trayIcon, text));
+                GtkBatchDispatch.dispatch(()->Gtk2.gtk_status_icon_set_tooltip_text(trayIcon, text));
             }
 
             @Override
@@ -138,25 +169,28 @@ class _GtkStatusIconNativeTray extends Tray {
             void remove() {
                 // This is required if we have JavaFX or SWT shutdown hooks (to prevent us from shutting down twice...)
                 if (!shuttingDown.getAndSet(true)) {
-                    GtkEventDispatch.dispatchAndWait(()->{
+                    super.remove();
+
+                    // the menu is removed by queued GTK actions, which run first. Everything is removed in a single pass.
+                    GtkBatchDispatch.dispatchAndWait(()->{
                         // this hides the indicator
                         Gtk2.gtk_status_icon_set_visible(trayIcon, false);
                         GObject.g_object_unref(trayIcon);
 
+                        GtkPixbufCache.release(trayIconFile);
+                        trayIconFile = null;
+
                         // mark for GC
                         trayIcon = null;
                         gtkCallback = null;
-                    });
-
-                    super.remove();
 
-                    // does not need to be called on the dispatch (it does that)
-                    GtkEventDispatch.shutdownGui();
+                        GtkEventDispatch.shutdownGui();
+                    });
                 }
             }
         };
 
-        GtkEventDispatch.dispatch(()->{
+        GtkBatchDispatch.dispatch(()->{
             trayIcon = Gtk2.gtk_status_icon_new();
 
             gtkCallback = new GEventCallback() {
@@ -166,18 +200,24 @@ class _GtkStatusIconNativeTray extends Tray {
                     // show the swing menu on the EDT
                     // BUTTON_PRESS only (any mouse click)
                     if (event.type == 4) {
+                        // apply the changes that were made while the menu was closed
+                        gtkMenu.menuVisibility.shown();
+
                         Gtk2.gtk_menu_popup(gtkMenu._nativeMenu, null, null, Gtk2.gtk_status_icon_position_menu,
                                             trayIcon, 0, event.time);
                     }
                 }
             };
             GObject.g_signal_connect_object(trayIcon, "button_press_event", gtkCallback, null, 0);
+
+            // the menu is only ever shown by the callback, so it can tell when the menu is open
+            gtkMenu.menuVisibility.setTracked();
         });
 
         GtkEventDispatch.waitForEventsToComplete();
 
         // we have to be able to set our title, otherwise the gnome-shell extension WILL NOT work
-        GtkEventDispatch.dispatchAndWait(()->{
+        GtkBatchDispatch.dispatchAndWait(()->{
             // in GNOME by default, the title/name of the tray icon is "java". We are the only java-based tray icon, so we just use that.
             // If you change "SystemTray" to something else, make sure to change it in extension.js as well
 
@@ -97,7 +97,7 @@ class AwtOsxMenuItem implements MenuItemPeer {
                 public
                 void actionPerformed(ActionEvent e) {
                     // we want it to run on our own with our own action event info (so it is consistent across all platforms)
-                    EventDispatch.runLater(()->{
+                    EventDispatch.runLater(menuItem, ()->{
                         try {
                             cb.actionPerformed(new ActionEvent(menuItem, ActionEvent.ACTION_PERFORMED, ""));
                         } catch (Throwable throwable) {
@@ -16,11 +16,14 @@
 package dorkbox.systemTray.ui.swing;
 
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
 
 import javax.swing.ImageIcon;
 import javax.swing.JComponent;
 import javax.swing.JMenu;
 import javax.swing.JPopupMenu;
+import javax.swing.event.PopupMenuEvent;
+import javax.swing.event.PopupMenuListener;
 
 import dorkbox.systemTray.Checkbox;
 import dorkbox.systemTray.Entry;
@@ -30,6 +33,8 @@ import dorkbox.systemTray.Separator;
 import dorkbox.systemTray.Status;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.MenuPeer;
+import dorkbox.systemTray.util.MenuVisibility;
+import dorkbox.systemTray.util.PeerState;
 import dorkbox.util.SwingUtil;
 
 // this is a weird composite class, because it must be a Menu, but ALSO a Entry -- so it has both (and duplicate code)
@@ -39,6 +44,12 @@ class SwingMenu implements MenuPeer {
 
     final JComponent _native;
 
+    // shared by the entire menu, and applies the changes to the menu entries when the menu is shown
+    final MenuVisibility menuVisibility;
+
+    // the last values that were applied to the native component
+    private final PeerState peerState = new PeerState();
+
     // called by the system tray constructors
     // This is NOT a copy constructor!
     @SuppressWarnings("IncompleteCopyConstructor")
@@ -50,6 +61,30 @@ class SwingMenu implements MenuPeer {
             trayPopup.setUI(SystemTray.SWING_UI.getMenuUI(trayPopup, null));
         }
         this._native = trayPopup;
+
+        this.menuVisibility = new MenuVisibility(SwingUtil.INSTANCE::invokeLater);
+        trayPopup.addPopupMenuListener(new PopupMenuListener() {
+            @Override
+            public
+            void popupMenuWillBecomeVisible(final PopupMenuEvent e) {
+                menuVisibility.shown();
+            }
+
+            @Override
+            public
+            void popupMenuWillBecomeInvisible(final PopupMenuEvent e) {
+                menuVisibility.hidden();
+            }
+
+            @Override
+            public
+            void popupMenuCanceled(final PopupMenuEvent e) {
+            }
+        });
+        menuVisibility.setTracked();
+
+        // so the first time the menu is opened is not slow
+        trayPopup.scheduleWarmUp();
     }
 
     // This is NOT a copy constructor!
@@ -67,30 +102,50 @@ class SwingMenu implements MenuPeer {
         }
 
         this._native = jMenu;
+        this.menuVisibility = parent.menuVisibility;
         parent._native.add(jMenu, index);
     }
 
     @Override
     public
     void add(final Menu parentMenu, final Entry entry, final int index) {
-        // must always be called on the EDT
-        SwingUtil.INSTANCE.invokeAndWaitQuietly(()->{
+        addAsync(parentMenu, entry, index);
+    }
+
+    /**
+     * Adds the entry to this menu on the EDT, without waiting for it to happen. A burst of additions is applied at once, followed by a
+     * single layout of the menu.
+     *
+     * @return a future that completes once the entry has been added and the menu has been laid out
+     */
+    @Override
+    public
+    CompletableFuture<?> addAsync(final Menu parentMenu, final Entry entry, final int index) {
+        return SwingMenuBatch.run(this, ()->{
             // don't add this entry if it's already been added via another method. Because of threading via swing/gtk, entries can
             // POSSIBLY get added twice. Once via add() and once via bind().
             if (entry.hasPeer()) {
                 return;
             }
 
+            // this is no longer waited for, so the entry (or the menu) could have already been removed before we got here.
+            if (!parentMenu.hasPeer() || !entry.isAddedTo(parentMenu)) {
+                return;
+            }
+
+            // if an earlier entry was skipped (because it was removed), the index can be past the end
+            final int safeIndex = Math.min(index, getItemCount());
+
             if (entry instanceof Menu) {
-                SwingMenu swingMenu = new SwingMenu(SwingMenu.this, (Menu) entry, index);
+                SwingMenu swingMenu = new SwingMenu(SwingMenu.this, (Menu) entry, safeIndex);
                 ((Menu) entry).bind(swingMenu, parentMenu, parentMenu.getImageResizeUtil());
             }
             else if (entry instanceof Separator) {
-                SwingMenuItemSeparator item = new SwingMenuItemSeparator(SwingMenu.this, index);
+                SwingMenuItemSeparator item = new SwingMenuItemSeparator(SwingMenu.this, safeIndex);
                 entry.bind(item, parentMenu, parentMenu.getImageResizeUtil());
             }
             else if (entry instanceof Checkbox) {
-                SwingMenuItemCheckbox item = new SwingMenuItemCheckbox(SwingMenu.this, entry, index);
+                SwingMenuItemCheckbox item = new SwingMenuItemCheckbox(SwingMenu.this, entry, safeIndex);
                 ((Checkbox) entry).bind(item, parentMenu, parentMenu.getImageResizeUtil());
             }
             else if (entry instanceof Status) {
@@ -99,18 +154,65 @@ class SwingMenu implements MenuPeer {
                 ((Status) entry).bind(item, parentMenu, parentMenu.getImageResizeUtil());
             }
             else if (entry instanceof MenuItem) {
-                SwingMenuItem item = new SwingMenuItem(SwingMenu.this, entry, index);
+                SwingMenuItem item = new SwingMenuItem(SwingMenu.this, entry, safeIndex);
                 ((MenuItem) entry).bind(item, parentMenu, parentMenu.getImageResizeUtil());
             }
         });
     }
 
+    // this is ALWAYS called on the EDT.
+    private
+    int getItemCount() {
+        if (_native instanceof JMenu) {
+            return ((JMenu) _native).getMenuComponentCount();
+        }
+
+        return _native.getComponentCount();
+    }
+
+    /**
+     * Warms up the popup menu of the tray again (see {@link TrayPopup#scheduleWarmUp()}), after a lot of entries have changed.
+     */
+    void scheduleWarmUp() {
+        SwingMenu root = this;
+        while (root.parent != null) {
+            root = root.parent;
+        }
+
+        if (root._native instanceof TrayPopup) {
+            ((TrayPopup) root._native).scheduleWarmUp();
+        }
+    }
+
+    /**
+     * Lays out the menu (once) after entries have been added. This is ALWAYS called on the EDT.
+     */
+    void layoutMenu() {
+        JPopupMenu popupMenu;
+        if (_native instanceof JMenu) {
+            popupMenu = ((JMenu) _native).getPopupMenu();
+        } else {
+            popupMenu = (JPopupMenu) _native;
+        }
+
+        popupMenu.revalidate();
+
+        // a hidden menu is sized (from its preferred size) when it is shown
+        if (popupMenu.isVisible()) {
+            popupMenu.pack();
+        }
+    }
+
     // is overridden in tray impl
     @Override
     public
     void setImage(final MenuItem menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->{
-            File imageFile = menuItem.getImage();
+        final File imageFile = menuItem.getImage();
+        if (!peerState.update(PeerState.IMAGE, imageFile)) {
+            return;
+        }
+
+        menuVisibility.dispatch(this, PeerState.IMAGE, ()->{
             if (imageFile != null) {
                 ImageIcon origIcon = new ImageIcon(imageFile.getAbsolutePath());
                 ((JMenu) _native).setIcon(origIcon);
@@ -125,7 +227,12 @@ class SwingMenu implements MenuPeer {
     @Override
     public
     void setEnabled(final MenuItem menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->_native.setEnabled(menuItem.getEnabled()));
+        final boolean enabled = menuItem.getEnabled();
+        if (!peerState.update(PeerState.ENABLED, enabled)) {
+            return;
+        }
+
+        menuVisibility.dispatch(this, PeerState.ENABLED, ()->_native.setEnabled(enabled));
     }
 
 
@@ -133,7 +240,12 @@ class SwingMenu implements MenuPeer {
     @Override
     public
     void setText(final MenuItem menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->((JMenu) _native).setText(menuItem.getText()));
+        final String text = menuItem.getText();
+        if (!peerState.update(PeerState.TEXT, text)) {
+            return;
+        }
+
+        menuVisibility.dispatch(this, PeerState.TEXT, ()->((JMenu) _native).setText(text));
     }
 
     @Override
@@ -148,8 +260,11 @@ class SwingMenu implements MenuPeer {
     void setShortcut(final MenuItem menuItem) {
         // Will return 0 as the vKey if it's not set (which will remove the shortcut)
         final int vKey = SwingUtil.INSTANCE.getVirtualKey(menuItem.getShortcut());
+        if (!peerState.update(PeerState.SHORTCUT, vKey)) {
+            return;
+        }
 
-        SwingUtil.INSTANCE.invokeLater(()->((JMenu) _native).setMnemonic(vKey));
+        menuVisibility.dispatch(this, PeerState.SHORTCUT, ()->((JMenu) _native).setMnemonic(vKey));
     }
 
     @Override
@@ -164,6 +279,8 @@ class SwingMenu implements MenuPeer {
     @Override
     public synchronized
     void remove() {
+        menuVisibility.discard(this);
+
         SwingUtil.INSTANCE.invokeLater(()->{
             _native.setVisible(false);
             _native.removeAll();
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.ui.swing;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingUtilities;
+
+import dorkbox.systemTray.SystemTray;
+import dorkbox.util.SwingUtil;
+
+/**
+ * Applies the swing menu construction on the EDT in batches, so that adding many entries does not need a (blocking) EDT round-trip
+ * for every entry.
+ * <p>
+ * Everything that is queued before the EDT gets to it is applied in a single EDT task (in the order it was queued), and then each
+ * menu that changed is laid out once.
+ */
+final
+class SwingMenuBatch {
+    private static final
+    class Pending {
+        final SwingMenu menu;
+        final Runnable action;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Pending(final SwingMenu menu, final Runnable action) {
+            this.menu = menu;
+            this.action = action;
+        }
+    }
+
+    // a batch with at least this many changes warms up the menu again, so opening it afterwards is not slow
+    private static final int WARMUP_THRESHOLD = 8;
+
+    // lock-free, multiple producers (any thread) and a single consumer (the EDT)
+    private static final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+
+    // true when a drain has been scheduled on the EDT, but has not yet finished
+    private static final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    // these are only accessed on the EDT
+    private static boolean draining = false;
+    private static final Set<SwingMenu> changedMenus = new LinkedHashSet<>();
+    private static final List<Pending> finished = new ArrayList<>();
+
+    /**
+     * Queues the action to run on the EDT, after all previously queued actions.
+     *
+     * @param menu the menu that is changed by the action, which is laid out again once the batch is finished
+     *
+     * @return a future that completes once the action has run and the menu has been laid out
+     */
+    static
+    CompletableFuture<Void> run(final SwingMenu menu, final Runnable action) {
+        Pending pending = new Pending(menu, action);
+
+        if (SwingUtilities.isEventDispatchThread()) {
+            if (draining) {
+                // an action in this batch is adding entries (for example, a sub-menu binding its entries), so it must happen now
+                runAction(pending);
+            } else {
+                queue.offer(pending);
+                drain();
+            }
+
+            return pending.future;
+        }
+
+        queue.offer(pending);
+        if (scheduled.compareAndSet(false, true)) {
+            SwingUtil.INSTANCE.invokeLater(SwingMenuBatch::drain);
+        }
+
+        return pending.future;
+    }
+
+    private static
+    void drain() {
+        draining = true;
+        try {
+            while (true) {
+                Pending pending;
+                while ((pending = queue.poll()) != null) {
+                    runAction(pending);
+                }
+
+                scheduled.set(false);
+
+                // something could have been queued after the queue was empty, but before we cleared the flag. This must run now (and not
+                // in a new EDT task), otherwise other EDT tasks that were queued after it (such as removing that entry) would run first
+                if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                    break;
+                }
+            }
+        } finally {
+            draining = false;
+        }
+
+        final boolean isLargeChange = finished.size() >= WARMUP_THRESHOLD;
+
+        for (SwingMenu menu : changedMenus) {
+            try {
+                menu.layoutMenu();
+
+                if (isLargeChange) {
+                    menu.scheduleWarmUp();
+                }
+            } catch (Throwable e) {
+                SystemTray.logger.error("Error laying out the swing menu.", e);
+            }
+        }
+        changedMenus.clear();
+
+        for (Pending pending : finished) {
+            pending.future.complete(null);
+        }
+        finished.clear();
+    }
+
+    private static
+    void runAction(final Pending pending) {
+        try {
+            pending.action.run();
+        } catch (Throwable e) {
+            SystemTray.logger.error("Error adding the swing menu entry.", e);
+            pending.future.completeExceptionally(e);
+        }
+
+        changedMenus.add(pending.menu);
+        finished.add(pending);
+    }
+
+    private
+    SwingMenuBatch() {
+    }
+}
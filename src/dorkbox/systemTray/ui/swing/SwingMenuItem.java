@@ -29,6 +29,7 @@ import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.MenuItemPeer;
 import dorkbox.systemTray.util.EventDispatch;
 import dorkbox.systemTray.util.ImageResizeUtil;
+import dorkbox.systemTray.util.PeerState;
 import dorkbox.util.SwingUtil;
 
 class SwingMenuItem implements MenuItemPeer {
@@ -63,6 +64,9 @@ class SwingMenuItem implements MenuItemPeer {
     protected final SwingMenu parent;
     protected final JMenuItem _native = new JMenuItem();
 
+    // the last values that were applied to the native component
+    protected final PeerState peerState = new PeerState();
+
     protected volatile ActionListener callback;
 
 
@@ -83,8 +87,12 @@ class SwingMenuItem implements MenuItemPeer {
     @Override
     public
     void setImage(final MenuItem menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->{
-            File imageFile = menuItem.getImage();
+        final File imageFile = menuItem.getImage();
+        if (!peerState.update(PeerState.IMAGE, imageFile)) {
+            return;
+        }
+
+        parent.menuVisibility.dispatch(this, PeerState.IMAGE, ()->{
             if (imageFile != null) {
                 ImageIcon origIcon = new ImageIcon(imageFile.getAbsolutePath());
                 _native.setIcon(origIcon);
@@ -98,13 +106,23 @@ class SwingMenuItem implements MenuItemPeer {
     @Override
     public
     void setEnabled(final MenuItem menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->_native.setEnabled(menuItem.getEnabled()));
+        final boolean enabled = menuItem.getEnabled();
+        if (!peerState.update(PeerState.ENABLED, enabled)) {
+            return;
+        }
+
+        parent.menuVisibility.dispatch(this, PeerState.ENABLED, ()->_native.setEnabled(enabled));
     }
 
     @Override
     public
     void setText(final MenuItem menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->_native.setText(menuItem.getText()));
+        final String text = menuItem.getText();
+        if (!peerState.update(PeerState.TEXT, text)) {
+            return;
+        }
+
+        parent.menuVisibility.dispatch(this, PeerState.TEXT, ()->_native.setText(text));
     }
 
     @SuppressWarnings("Duplicates")
@@ -125,7 +143,7 @@ class SwingMenuItem implements MenuItemPeer {
                 public
                 void actionPerformed(ActionEvent e) {
                     // we want it to run on our own with our own action event info (so it is consistent across all platforms)
-                    EventDispatch.runLater(()->{
+                    EventDispatch.runLater(menuItem, ()->{
                         try {
                             cb.actionPerformed(new ActionEvent(menuItem, ActionEvent.ACTION_PERFORMED, ""));
                         } catch (Throwable throwable) {
@@ -144,19 +162,29 @@ class SwingMenuItem implements MenuItemPeer {
     void setShortcut(final MenuItem menuItem) {
         // Will return 0 as the vKey if it's not set (which will remove the shortcut)
         final int vKey = SwingUtil.INSTANCE.getVirtualKey(menuItem.getShortcut());
+        if (!peerState.update(PeerState.SHORTCUT, vKey)) {
+            return;
+        }
 
-        SwingUtil.INSTANCE.invokeLater(()->_native.setMnemonic(vKey));
+        parent.menuVisibility.dispatch(this, PeerState.SHORTCUT, ()->_native.setMnemonic(vKey));
     }
 
     @Override
     public
     void setTooltip(final MenuItem menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->_native.setToolTipText(menuItem.getTooltip()));
+        final String tooltip = menuItem.getTooltip();
+        if (!peerState.update(PeerState.TOOLTIP, tooltip)) {
+            return;
+        }
+
+        parent.menuVisibility.dispatch(this, PeerState.TOOLTIP, ()->_native.setToolTipText(tooltip));
     }
 
     @Override
     public
     void remove() {
+        parent.menuVisibility.discard(this);
+
         //noinspection Duplicates
         SwingUtil.INSTANCE.invokeLater(()->{
             if (callback != null) {
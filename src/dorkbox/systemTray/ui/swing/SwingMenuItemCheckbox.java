@@ -27,6 +27,8 @@ import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.CheckboxPeer;
 import dorkbox.systemTray.util.EventDispatch;
 import dorkbox.systemTray.util.HeavyCheckMark;
+import dorkbox.systemTray.util.MenuVisibility;
+import dorkbox.systemTray.util.PeerState;
 import dorkbox.util.FontUtil;
 import dorkbox.util.SwingUtil;
 
@@ -78,13 +80,23 @@ class SwingMenuItemCheckbox extends SwingMenuItem implements CheckboxPeer {
     @Override
     public
     void setEnabled(final Checkbox menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->_native.setEnabled(menuItem.getEnabled()));
+        final boolean enabled = menuItem.getEnabled();
+        if (!peerState.update(PeerState.ENABLED, enabled)) {
+            return;
+        }
+
+        parent.menuVisibility.dispatch(this, PeerState.ENABLED, ()->_native.setEnabled(enabled));
     }
 
     @Override
     public
     void setText(final Checkbox menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->_native.setText(menuItem.getText()));
+        final String text = menuItem.getText();
+        if (!peerState.update(PeerState.TEXT, text)) {
+            return;
+        }
+
+        parent.menuVisibility.dispatch(this, PeerState.TEXT, ()->_native.setText(text));
     }
 
     @SuppressWarnings("Duplicates")
@@ -108,7 +120,7 @@ class SwingMenuItemCheckbox extends SwingMenuItem implements CheckboxPeer {
                     menuItem.setChecked(!isChecked);
 
                     // we want it to run on our own with our own action event info (so it is consistent across all platforms)
-                    EventDispatch.runLater(()->{
+                    EventDispatch.runLater(menuItem, ()->{
                         try {
                             cb.actionPerformed(new ActionEvent(menuItem, ActionEvent.ACTION_PERFORMED, ""));
                         } catch (Throwable throwable) {
@@ -127,8 +139,11 @@ class SwingMenuItemCheckbox extends SwingMenuItem implements CheckboxPeer {
     void setShortcut(final Checkbox menuItem) {
         // Will return 0 as the vKey if it's not set (which will remove the shortcut)
         final int vKey = SwingUtil.INSTANCE.getVirtualKey(menuItem.getShortcut());
+        if (!peerState.update(PeerState.SHORTCUT, vKey)) {
+            return;
+        }
 
-        SwingUtil.INSTANCE.invokeLater(()->_native.setMnemonic(vKey));
+        parent.menuVisibility.dispatch(this, PeerState.SHORTCUT, ()->_native.setMnemonic(vKey));
     }
 
     @Override
@@ -140,7 +155,7 @@ class SwingMenuItemCheckbox extends SwingMenuItem implements CheckboxPeer {
         if (checked != this.isChecked) {
             this.isChecked = checked;
 
-            SwingUtil.INSTANCE.invokeLater(()->{
+            parent.menuVisibility.dispatch(this, MenuVisibility.CHECKED, ()->{
                 if (isChecked) {
                     _native.setIcon(checkedIcon);
                 }
@@ -154,6 +169,11 @@ class SwingMenuItemCheckbox extends SwingMenuItem implements CheckboxPeer {
     @Override
     public
     void setTooltip(final Checkbox menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->_native.setToolTipText(menuItem.getTooltip()));
+        final String tooltip = menuItem.getTooltip();
+        if (!peerState.update(PeerState.TOOLTIP, tooltip)) {
+            return;
+        }
+
+        parent.menuVisibility.dispatch(this, PeerState.TOOLTIP, ()->_native.setToolTipText(tooltip));
     }
 }
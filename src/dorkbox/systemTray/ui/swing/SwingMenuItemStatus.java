@@ -24,6 +24,7 @@ import dorkbox.systemTray.Entry;
 import dorkbox.systemTray.Status;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.systemTray.peer.StatusPeer;
+import dorkbox.systemTray.util.PeerState;
 import dorkbox.util.SwingUtil;
 
 class SwingMenuItemStatus implements StatusPeer {
@@ -31,6 +32,9 @@ class SwingMenuItemStatus implements StatusPeer {
     private final SwingMenu parent;
     private final JMenuItem _native = new JMenuItem();
 
+    // the last values that were applied to the native component
+    private final PeerState peerState = new PeerState();
+
     // this is ALWAYS called on the EDT.
     SwingMenuItemStatus(final SwingMenu parent, final Entry entry) {
         this.parent = parent;
@@ -54,12 +58,19 @@ class SwingMenuItemStatus implements StatusPeer {
     @Override
     public
     void setText(final Status menuItem) {
-        SwingUtil.INSTANCE.invokeLater(()->_native.setText(menuItem.getText()));
+        final String text = menuItem.getText();
+        if (!peerState.update(PeerState.TEXT, text)) {
+            return;
+        }
+
+        parent.menuVisibility.dispatch(this, PeerState.TEXT, ()->_native.setText(text));
     }
 
     @Override
     public
     void remove() {
+        parent.menuVisibility.discard(this);
+
         SwingUtil.INSTANCE.invokeLater(()->{
             parent._native.remove(_native);
             _native.removeAll();
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.ui.swing;
+
+import dorkbox.os.OS;
+import dorkbox.systemTray.SystemTray.TrayType;
+import dorkbox.systemTray.Tray;
+import dorkbox.systemTray.util.ImageResizeUtil;
+import dorkbox.systemTray.util.LinuxSwingUI;
+import dorkbox.systemTray.util.SystemTrayFixesLinux;
+import dorkbox.systemTray.util.SystemTrayFixesWindows;
+import dorkbox.systemTray.util.TrayProvider;
+import dorkbox.systemTray.util.WindowsSwingUI;
+
+/**
+ * Creates the Swing tray.
+ */
+@SuppressWarnings("unused")
+public final
+class SwingTrayProvider extends TrayProvider {
+    @Override
+    public
+    TrayType getType() {
+        return TrayType.Swing;
+    }
+
+    @Override
+    public
+    boolean isCreatedOnEdt() {
+        return true;
+    }
+
+    @Override
+    public
+    SwingUIFactory getDefaultSwingUI() {
+        if (OS.INSTANCE.isWindows()) {
+            return new WindowsSwingUI();
+        }
+        else if (OS.INSTANCE.isLinux() || OS.INSTANCE.isUnix()) {
+            return new LinuxSwingUI();
+        }
+
+        return null;
+    }
+
+    @Override
+    public
+    void fixTray() {
+        if (OS.INSTANCE.isWindows()) {
+            // windows hard-codes the image size for AWT/SWING tray types
+            SystemTrayFixesWindows.fix(TrayType.Swing);
+        }
+        else if (OS.INSTANCE.isLinux() || OS.INSTANCE.isUnix()) {
+            // linux doesn't have transparent backgrounds for swing and hard-codes the image size
+            SystemTrayFixesLinux.fix(TrayType.Swing);
+        }
+    }
+
+    @Override
+    public
+    Tray create(final String trayName, final ImageResizeUtil imageResizeUtil, final Runnable onRemoveEvent) {
+        return new _SwingTray(trayName, imageResizeUtil, onRemoveEvent);
+    }
+}
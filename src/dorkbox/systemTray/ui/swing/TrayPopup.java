@@ -15,20 +15,28 @@
  */
 package dorkbox.systemTray.ui.swing;
 
+import java.awt.Component;
+import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Frame;
+import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.Window;
 import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
 import javax.swing.JDialog;
+import javax.swing.JMenu;
 import javax.swing.JPopupMenu;
+import javax.swing.Timer;
 import javax.swing.event.PopupMenuEvent;
 import javax.swing.event.PopupMenuListener;
 
@@ -44,12 +52,19 @@ public
 class TrayPopup extends JPopupMenu {
     private static final long serialVersionUID = 1L;
 
+    private static final AtomicLong openCount = new AtomicLong();
+    private static final AtomicLong lastOpenNanos = new AtomicLong();
+    private static final AtomicLong maxOpenNanos = new AtomicLong();
+
     // This lets us click OFF the menu to hide the menu. This will always show an entry in the taskbar
     // for java1.6 on linux (possibly others)
     private final JDialog hiddenDialog;
 
     private volatile File iconFile;
 
+    // lays out + renders the menu once it has not changed for a while (on the EDT)
+    private final Timer warmUpTimer;
+
     @SuppressWarnings("unchecked")
     public
     TrayPopup(final String trayName) {
@@ -85,6 +100,105 @@ class TrayPopup extends JPopupMenu {
             public void popupMenuCanceled(PopupMenuEvent e) {
             }
         });
+
+        warmUpTimer = new Timer(0, e->warmUp());
+        warmUpTimer.setRepeats(false);
+    }
+
+    /**
+     * Warms up the menu once it has not changed for {@link SystemTray#POPUP_WARMUP_DELAY_MS}. Every call restarts the wait.
+     */
+    void scheduleWarmUp() {
+        final int delay = SystemTray.POPUP_WARMUP_DELAY_MS;
+        if (delay < 0) {
+            return;
+        }
+
+        warmUpTimer.setInitialDelay(delay);
+        warmUpTimer.restart();
+    }
+
+    /**
+     * Lays out and renders the menu (and the sub-menus) off-screen, so that the fonts, UI delegates and images are already loaded
+     * when the menu is opened. This must be called on the EDT.
+     */
+    private
+    void warmUp() {
+        if (isVisible()) {
+            return;
+        }
+
+        final long start = System.nanoTime();
+        try {
+            warmUp(this);
+        } catch (Throwable e) {
+            SystemTray.logger.error("Error warming up the popup menu.", e);
+        }
+
+        if (SystemTray.DEBUG) {
+            SystemTray.logger.debug("Warmed up the popup menu in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private static
+    void warmUp(final JPopupMenu popupMenu) {
+        final Dimension size = popupMenu.getPreferredSize();
+        if (size.width <= 0 || size.height <= 0) {
+            return;
+        }
+
+        // the menu does not have a native window until it is shown, so it has to be laid out by hand
+        popupMenu.setSize(size);
+        layout(popupMenu);
+
+        final BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = image.createGraphics();
+        try {
+            popupMenu.printAll(graphics);
+        } finally {
+            graphics.dispose();
+        }
+
+        for (Component component : popupMenu.getComponents()) {
+            if (component instanceof JMenu) {
+                warmUp(((JMenu) component).getPopupMenu());
+            }
+        }
+    }
+
+    private static
+    void layout(final Container container) {
+        container.doLayout();
+
+        for (Component component : container.getComponents()) {
+            if (component instanceof Container) {
+                layout((Container) component);
+            }
+        }
+    }
+
+    /**
+     * @return the number of times a popup menu was opened
+     */
+    public static
+    long getOpenCount() {
+        return openCount.get();
+    }
+
+    /**
+     * @return how long (in nanoseconds) it took to open the popup menu the last time it was opened
+     */
+    public static
+    long getLastOpenNanos() {
+        return lastOpenNanos.get();
+    }
+
+    /**
+     * @return the longest time (in nanoseconds) it took to open a popup menu
+     */
+    public static
+    long getMaxOpenNanos() {
+        return maxOpenNanos.get();
     }
 
     /**
@@ -110,12 +224,19 @@ class TrayPopup extends JPopupMenu {
     }
 
     void close() {
+        warmUpTimer.stop();
+
         hiddenDialog.setVisible(false);
         hiddenDialog.dispatchEvent(new WindowEvent(hiddenDialog, WindowEvent.WINDOW_CLOSING));
     }
 
     public
     void doShow(final Point point, int offset) {
+        final long start = System.nanoTime();
+
+        // the menu is about to be laid out anyway
+        warmUpTimer.stop();
+
         Dimension size = getPreferredSize();
         Rectangle bounds = ScreenUtil.INSTANCE.getScreenBoundsAt(point);
 
@@ -158,5 +279,10 @@ class TrayPopup extends JPopupMenu {
         setVisible(true);
 
         requestFocusInWindow();
+
+        final long elapsed = System.nanoTime() - start;
+        openCount.incrementAndGet();
+        lastOpenNanos.set(elapsed);
+        maxOpenNanos.accumulateAndGet(elapsed, Math::max);
     }
 }
@@ -24,14 +24,13 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.io.File;
 
-import javax.swing.ImageIcon;
 import javax.swing.JPopupMenu;
 
-import dorkbox.collections.ArrayMap;
 import dorkbox.jna.linux.GtkEventDispatch;
 import dorkbox.os.OS;
 import dorkbox.systemTray.MenuItem;
 import dorkbox.systemTray.Tray;
+import dorkbox.systemTray.util.ImageCache;
 import dorkbox.systemTray.util.ImageResizeUtil;
 import dorkbox.systemTray.util.SizeAndScaling;
 import dorkbox.util.SwingUtil;
@@ -55,12 +54,6 @@ class _SwingTray extends Tray {
     private volatile File imageFile;
     private volatile String tooltipText = "";
 
-    // The image resources are cached, so that if someone is trying to create an animation, the image resource is re-used instead of
-    // constantly created/destroyed -- which over time leads to issues.
-    // This cache isn't anything fancy, it just lets us reuse what we have. It's cleared on hide(), and it will auto-grow as necessary.
-    // If someone uses a different file every time, then this will cause problems. An error log is added if a different image is created 100x
-    private final ArrayMap<String, Image> imageCache = new ArrayMap<>(false, 10);
-
     // Called in the EDT
     @SuppressWarnings("unused")
     public
@@ -122,18 +115,7 @@ class _SwingTray extends Tray {
                     final Image trayImage;
                     if (imageFile != null) {
                         String path = imageFile.getAbsolutePath();
-                        synchronized (imageCache) {
-                            Image previousImage = imageCache.get(path);
-                            if (previousImage == null) {
-                                previousImage = new ImageIcon(path).getImage();
-                                imageCache.put(path, previousImage);
-                                if (imageCache.getSize() > 120) {
-                                    dorkbox.systemTray.SystemTray.logger.error("More than 120 different images used for the SystemTray icon. This will lead to performance issues.");
-                                }
-                            }
-
-                            trayImage = previousImage;
-                        }
+                        trayImage = ImageCache.get(_SwingTray.this, path);
                     } else {
                         trayImage = null;
                     }
@@ -224,13 +206,7 @@ class _SwingTray extends Tray {
             @Override
             public
             void remove() {
-                synchronized (imageCache) {
-                    for (final Image value : imageCache.getValues()) {
-                        value.flush();
-                    }
-
-                    imageCache.clear();
-                }
+                ImageCache.clear(_SwingTray.this);
 
                 SwingUtil.INSTANCE.invokeAndWaitQuietly(()->{
                     if (trayIcon != null) {
@@ -29,14 +29,9 @@ import dorkbox.systemTray.SystemTray.TrayType;
 import dorkbox.systemTray.Tray;
 import dorkbox.systemTray.gnomeShell.AppIndicatorExtension;
 import dorkbox.systemTray.gnomeShell.DummyFile;
+import dorkbox.systemTray.gnomeShell.ExtensionSupport;
 import dorkbox.systemTray.gnomeShell.LegacyExtension;
 import dorkbox.systemTray.gnomeShell.TrayIconsReloadedIndicatorExtension;
-import dorkbox.systemTray.ui.awt._AwtTray;
-import dorkbox.systemTray.ui.gtk._AppIndicatorNativeTray;
-import dorkbox.systemTray.ui.gtk._GtkStatusIconNativeTray;
-import dorkbox.systemTray.ui.osx._OsxAwtTray;
-import dorkbox.systemTray.ui.swing._SwingTray;
-import dorkbox.systemTray.ui.swing._WindowsNativeTray;
 import dorkbox.util.FileUtil;
 
 /**
@@ -48,54 +43,9 @@ class AutoDetectTrayType {
     // can add entries to the menu without having to pass the SystemTray object around
     private static final Map<String, SystemTray> traySingletons = new HashMap<>();
 
+    // the trays that are being created, but might not be in traySingletons yet. Only accessed while synchronized on traySingletons
+    private static int creatingCount = 0;
 
-    public static
-    Class<? extends Tray> selectType(final TrayType trayType) {
-        if (trayType == TrayType.Gtk) {
-            return _GtkStatusIconNativeTray.class;
-        }
-        else if (trayType == TrayType.AppIndicator) {
-            return _AppIndicatorNativeTray.class;
-        }
-        else if (trayType == TrayType.WindowsNative) {
-            return _WindowsNativeTray.class;
-        }
-        else if (trayType == TrayType.Swing) {
-            return _SwingTray.class;
-        }
-        else if (trayType == TrayType.Osx) {
-            return _OsxAwtTray.class;
-        }
-        else if (trayType == TrayType.Awt) {
-            return _AwtTray.class;
-        }
-
-        return null;
-    }
-
-    public static
-    TrayType fromClass(final Class<? extends Tray> trayClass) {
-        if (trayClass == _GtkStatusIconNativeTray.class) {
-            return TrayType.Gtk;
-        }
-        else if (trayClass == _AppIndicatorNativeTray.class) {
-            return TrayType.AppIndicator;
-        }
-        else if (trayClass == _WindowsNativeTray.class) {
-            return TrayType.WindowsNative;
-        }
-        else if (trayClass == _SwingTray.class) {
-            return TrayType.Swing;
-        }
-        else if (trayClass == _OsxAwtTray.class) {
-            return TrayType.Osx;
-        }
-        else if (trayClass == _AwtTray.class) {
-            return TrayType.Awt;
-        }
-
-        return null;
-    }
 
     /**
      * @return what the default "autodetect" tray type should be
@@ -166,7 +116,7 @@ class AutoDetectTrayType {
                         //   >= 3.26 - (3.26 removed the legacy tray) app-indicator icons via shell extensions + libappindicator work
 
 
-                        String gnomeVersion = OS.DesktopEnv.INSTANCE.getGnomeVersion();
+                        String gnomeVersion = ExtensionSupport.getGnomeVersion();
                         if (gnomeVersion == null) {
                             // this shouldn't ever happen!
 
@@ -458,6 +408,48 @@ class AutoDetectTrayType {
         }
     }
 
+    public static
+    int getTrayCount() {
+        synchronized (traySingletons) {
+            return traySingletons.size();
+        }
+    }
+
+    /**
+     * Must be called before a tray is created (and {@link #creationFinished()} after), so that it counts as a tray before it is registered.
+     */
+    public static
+    void creationStarted() {
+        synchronized (traySingletons) {
+            creatingCount++;
+        }
+    }
+
+    public static
+    void creationFinished() {
+        synchronized (traySingletons) {
+            creatingCount--;
+        }
+    }
+
+    /**
+     * Runs the action only if there is at most one tray, and no other tray is being created. No tray can be registered (or start being
+     * created) while the action runs.
+     *
+     * @return true if the action was run
+     */
+    public static
+    boolean runIfLastTray(final Runnable action) {
+        synchronized (traySingletons) {
+            if (traySingletons.size() > 1 || creatingCount > 0) {
+                return false;
+            }
+
+            action.run();
+            return true;
+        }
+    }
+
     public static
     SystemTray getInstance(final String trayName) {
         synchronized (traySingletons) {
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * An ImageInputStream that reads directly from a ByteBuffer (for example, a memory-mapped file), so that ImageIO can read the image
+ * without first copying it onto the heap.
+ */
+final
+class ByteBufferImageInputStream extends ImageInputStreamImpl {
+    private final ByteBuffer buffer;
+
+    /**
+     * @param buffer the data of the stream, which is everything from the start of the buffer to its limit
+     */
+    ByteBufferImageInputStream(final ByteBuffer buffer) {
+        this.buffer = buffer.duplicate();
+    }
+
+    @Override
+    public
+    int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+
+        if (streamPos >= buffer.limit()) {
+            return -1;
+        }
+
+        return buffer.get((int) streamPos++) & 0xFF;
+    }
+
+    @Override
+    public
+    int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        checkClosed();
+
+        if (offset < 0 || length < 0 || offset + length > bytes.length || offset + length < 0) {
+            throw new IndexOutOfBoundsException();
+        }
+
+        bitOffset = 0;
+
+        if (length == 0) {
+            return 0;
+        }
+
+        long remaining = buffer.limit() - streamPos;
+        if (remaining <= 0) {
+            return -1;
+        }
+
+        int count = (int) Math.min(length, remaining);
+
+        buffer.position((int) streamPos);
+        buffer.get(bytes, offset, count);
+        streamPos += count;
+
+        return count;
+    }
+
+    @Override
+    public
+    long length() {
+        return buffer.limit();
+    }
+
+    @Override
+    public
+    boolean isCached() {
+        // everything is already available, so seeking backwards is cheap
+        return true;
+    }
+}
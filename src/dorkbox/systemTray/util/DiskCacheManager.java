@@ -0,0 +1,340 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import dorkbox.systemTray.SystemTray;
+import dorkbox.util.NamedThreadFactory;
+
+/**
+ * Keeps the on-disk image caches (the resized tray/menu images and the check-marks) from growing forever, by deleting the
+ * least-recently-used images once a cache is larger than {@link SystemTray#DISK_CACHE_MAX_BYTES} or has more than
+ * {@link SystemTray#DISK_CACHE_MAX_ENTRIES} images.
+ * <p>
+ * The cleanup runs on a low-priority background thread, shortly after a cache is first used and again after every
+ * {@link #CLEANUP_INTERVAL} new images.
+ * <p>
+ * The same cache directory can be used by more than one JVM at a time (ie: the application is started twice), so every JVM marks the
+ * images it uses by updating their modified time, and keeps doing so every {@link #LEASE_REFRESH_MS} until it no longer uses them (see
+ * {@link #released(File)}). Images that were marked recently enough might still be displayed (by any JVM), and are never deleted.
+ */
+public final
+class DiskCacheManager {
+    // how many new images are saved (to a cache directory) before it is checked again
+    private static final int CLEANUP_INTERVAL = 64;
+
+    // so that the cleanup does not compete with starting up
+    private static final long STARTUP_DELAY_MS = 5000L;
+
+    // the files are deleted in small batches, so the disk is not hammered
+    private static final int DELETE_BATCH_SIZE = 50;
+    private static final long DELETE_BATCH_PAUSE_MS = 10L;
+
+    // filesystem timestamps can be rounded to the nearest second (or worse)
+    private static final long TIMESTAMP_GRANULARITY_MS = 2000L;
+
+    // how often the images used by this JVM are marked as used again
+    private static final long LEASE_REFRESH_MS = TimeUnit.MINUTES.toMillis(30);
+
+    // images that were marked as used within this time are never deleted. Long enough for a refresh to be late
+    private static final long LEASE_MS = 2 * LEASE_REFRESH_MS + TIMESTAMP_GRANULARITY_MS;
+
+    // the images that are used by this JVM, which are marked as used again every LEASE_REFRESH_MS
+    private static final Set<File> usedFiles = ConcurrentHashMap.newKeySet();
+    private static final AtomicBoolean refreshStarted = new AtomicBoolean(false);
+
+    // key: cache directory, value: the number of images saved since it was last cleaned up
+    private static final ConcurrentHashMap<File, AtomicInteger> directories = new ConcurrentHashMap<>();
+
+    private static final ScheduledThreadPoolExecutor executor;
+    static {
+        executor = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("SystemTrayDiskCache",
+                                                                              Thread.currentThread().getThreadGroup(),
+                                                                              Thread.MIN_PRIORITY, true));
+        executor.setKeepAliveTime(10, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    // these are only accessed while synchronized. key: cache directory, value: {number of images, total bytes} as of the last cleanup
+    private static final Map<File, long[]> directorySizes = new HashMap<>();
+    private static long evictionCount = 0;
+    private static long evictedBytes = 0;
+
+    private static
+    final class CacheFile {
+        final Path path;
+        final long lastAccess;
+        final long size;
+
+        CacheFile(final Path path, final long lastAccess, final long size) {
+            this.path = path;
+            this.lastAccess = lastAccess;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Marks a cached image as used. The filesystem access time is not reliable (it is usually disabled, or only updated once a day), so
+     * the modified time is used instead.
+     */
+    public static
+    void touch(final File file) {
+        if (file == null) {
+            return;
+        }
+
+        register(file.getParentFile());
+        use(file);
+        mark(file);
+    }
+
+    // the image is marked again (by this JVM) for as long as it exists
+    private static
+    void use(final File file) {
+        usedFiles.add(file.getAbsoluteFile());
+
+        if (refreshStarted.compareAndSet(false, true)) {
+            executor.scheduleWithFixedDelay(DiskCacheManager::refresh, LEASE_REFRESH_MS, LEASE_REFRESH_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Notifies the manager that this JVM no longer uses a cached image (its last reference was released), so it is no longer marked as
+     * used. Once its mark is old enough, it can be deleted.
+     */
+    public static
+    void released(final File file) {
+        if (file != null) {
+            usedFiles.remove(file.getAbsoluteFile());
+        }
+    }
+
+    private static
+    void mark(final File file) {
+        // only once in a while, so that we don't write to the disk every time an image is used
+        long now = System.currentTimeMillis();
+        if (file.lastModified() < now - LEASE_REFRESH_MS) {
+            //noinspection ResultOfMethodCallIgnored
+            file.setLastModified(now);
+        }
+    }
+
+    private static
+    void refresh() {
+        usedFiles.removeIf(file->!file.exists());
+
+        for (File file : usedFiles) {
+            mark(file);
+        }
+    }
+
+    /**
+     * Notifies the manager that a new image was saved to the cache.
+     */
+    public static
+    void added(final File file) {
+        if (file == null) {
+            return;
+        }
+
+        File directory = file.getParentFile();
+        if (directory == null) {
+            return;
+        }
+
+        use(file);
+
+        AtomicInteger counter = register(directory);
+        if (counter.incrementAndGet() >= CLEANUP_INTERVAL) {
+            counter.set(0);
+            executor.execute(()->cleanup(directory));
+        }
+    }
+
+    private static
+    AtomicInteger register(final File directory) {
+        AtomicInteger counter = directories.get(directory);
+        if (counter == null) {
+            counter = new AtomicInteger();
+
+            AtomicInteger previous = directories.putIfAbsent(directory, counter);
+            if (previous != null) {
+                counter = previous;
+            } else {
+                // the first time this cache is used
+                executor.schedule(()->cleanup(directory), STARTUP_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        return counter;
+    }
+
+    private static
+    void cleanup(final File directory) {
+        // images that were marked since then might still be displayed by some JVM
+        final long inUseSince = System.currentTimeMillis() - LEASE_MS;
+
+        List<CacheFile> files = new ArrayList<>();
+        long bytes = 0;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath())) {
+            for (Path path : stream) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    // it was deleted while we were looking at it
+                    continue;
+                }
+
+                if (!attributes.isRegularFile()) {
+                    continue;
+                }
+
+                long lastAccess = Math.max(attributes.lastModifiedTime().toMillis(), attributes.lastAccessTime().toMillis());
+                files.add(new CacheFile(path, lastAccess, attributes.size()));
+                bytes += attributes.size();
+            }
+        } catch (IOException e) {
+            if (SystemTray.DEBUG) {
+                SystemTray.logger.debug("Unable to read the image cache: {}", directory, e);
+            }
+            return;
+        }
+
+        final long maxBytes = Math.max(0, SystemTray.DISK_CACHE_MAX_BYTES);
+        final int maxEntries = Math.max(0, SystemTray.DISK_CACHE_MAX_ENTRIES);
+
+        int count = files.size();
+        int deleted = 0;
+        long deletedBytes = 0;
+
+        if (count > maxEntries || bytes > maxBytes) {
+            // least-recently-used first
+            files.sort((a, b)->Long.compare(a.lastAccess, b.lastAccess));
+
+            for (CacheFile file : files) {
+                if (count <= maxEntries && bytes <= maxBytes) {
+                    break;
+                }
+
+                if (file.lastAccess >= inUseSince) {
+                    // everything after this was used recently, and might still be displayed
+                    break;
+                }
+
+                if (usedFiles.contains(file.path.toFile().getAbsoluteFile())) {
+                    // we use it, but have not marked it again yet
+                    continue;
+                }
+
+                try {
+                    // it might have been used while we were busy
+                    if (Files.getLastModifiedTime(file.path).toMillis() >= inUseSince) {
+                        continue;
+                    }
+
+                    Files.deleteIfExists(file.path);
+                } catch (IOException e) {
+                    continue;
+                }
+
+                count--;
+                bytes -= file.size;
+                deleted++;
+                deletedBytes += file.size;
+
+                if (deleted % DELETE_BATCH_SIZE == 0) {
+                    try {
+                        Thread.sleep(DELETE_BATCH_PAUSE_MS);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        synchronized (DiskCacheManager.class) {
+            directorySizes.put(directory, new long[] {count, bytes});
+            evictionCount += deleted;
+            evictedBytes += deletedBytes;
+        }
+
+        if (deleted > 0 && SystemTray.DEBUG) {
+            SystemTray.logger.debug("Deleted {} image(s) ({} bytes) from the image cache: {}", deleted, deletedBytes, directory);
+        }
+    }
+
+    /**
+     * @return the number of images in all the caches (as of when they were last cleaned up)
+     */
+    public static synchronized
+    long getEntryCount() {
+        long count = 0;
+        for (long[] size : directorySizes.values()) {
+            count += size[0];
+        }
+        return count;
+    }
+
+    /**
+     * @return the size (in bytes) of all the caches (as of when they were last cleaned up)
+     */
+    public static synchronized
+    long getTotalBytes() {
+        long bytes = 0;
+        for (long[] size : directorySizes.values()) {
+            bytes += size[1];
+        }
+        return bytes;
+    }
+
+    /**
+     * @return the number of images that have been deleted because a cache was too large
+     */
+    public static synchronized
+    long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the number of bytes that have been deleted because a cache was too large
+     */
+    public static synchronized
+    long getEvictedBytes() {
+        return evictedBytes;
+    }
+
+    private
+    DiskCacheManager() {
+    }
+}
@@ -20,7 +20,10 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import dorkbox.systemTray.Entry;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.util.NamedThreadFactory;
 
@@ -41,6 +44,14 @@ class EventDispatch {
     private static volatile CountDownLatch shutdownLatch = null;
     private static volatile boolean insideDispatch = false;
 
+    // the number of tasks that are waiting to run
+    private static final AtomicInteger queueDepth = new AtomicInteger(0);
+
+    // every task gets the next number when it is queued. Tasks numbered up to `discardUpTo` are discarded instead of run.
+    private static final AtomicLong taskSequence = new AtomicLong(0);
+    private static volatile long discardUpTo = 0;
+    private static final AtomicLong discarded = new AtomicLong(0);
+
     /**
      * Schedule an event to occur sometime in the future. We do not want to WAIT for a `runnable` to finish, because it is POSSIBLE that
      * this runnable wants to perform actions on the SAME dispatch thread that called this, resulting in a deadlock. Because we cannot
@@ -48,6 +59,17 @@ class EventDispatch {
      */
     public static
     void runLater(final Runnable runnable) {
+        runLater(null, runnable);
+    }
+
+    /**
+     * Schedule the callback of a menu entry to occur sometime in the future. This is the same as {@link #runLater(Runnable)}, except that
+     * the time it takes is recorded for the menu entry (see {@link EventDispatchWatchdog}).
+     *
+     * @param entry the menu entry whose callback is run, or null if this is not a menu callback
+     */
+    public static
+    void runLater(final Entry entry, final Runnable runnable) {
         synchronized(EventDispatch.class) {
             if (eventDispatchExecutor == null) {
                 if (insideDispatch) {
@@ -62,13 +84,56 @@ class EventDispatch {
             }
         }
 
+        final long taskId = taskSequence.incrementAndGet();
+
+        queueDepth.incrementAndGet();
         eventDispatchExecutor.execute(()->{
+            queueDepth.decrementAndGet();
+
+            if (taskId <= discardUpTo) {
+                discarded.incrementAndGet();
+                return;
+            }
+
             insideDispatch = true;
-            runnable.run();
-            insideDispatch = false;
+
+            EventDispatchWatchdog.Task task = EventDispatchWatchdog.start(entry);
+            try {
+                runnable.run();
+            } finally {
+                EventDispatchWatchdog.finish(task);
+                insideDispatch = false;
+            }
         });
     }
 
+    /**
+     * @return the number of tasks that are waiting to run on the event dispatch
+     */
+    public static
+    int getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    /**
+     * Discards all the tasks that are waiting to run (the task that is currently running, if any, will finish). Tasks that are queued
+     * after this are run as usual.
+     * <p>
+     * This is only for a fast shutdown, when the pending changes to the menu are no longer needed.
+     */
+    public static
+    void discardPending() {
+        discardUpTo = taskSequence.get();
+    }
+
+    /**
+     * @return the number of tasks that were discarded (instead of run) by {@link #discardPending()}
+     */
+    public static
+    long getDiscardedCount() {
+        return discarded.get();
+    }
+
     /**
      * Shutdown the event dispatch at the end of our current dispatch queue
      */
@@ -102,6 +167,18 @@ class EventDispatch {
      * Waits for the event dispatch to finish shutting down
      */
     public static void waitForShutdown() {
+        waitForShutdown(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * Waits for the event dispatch to finish shutting down
+     *
+     * @param timeoutMillis how long to wait for
+     *
+     * @return false if the event dispatch did not finish shutting down in time
+     */
+    public static
+    boolean waitForShutdown(final long timeoutMillis) {
         CountDownLatch latch = null;
         synchronized (EventDispatch.class) {
             latch = shutdownLatch;
@@ -109,9 +186,12 @@ class EventDispatch {
 
         if (latch != null) {
             try {
-                latch.await(5, TimeUnit.SECONDS);
+                return latch.await(Math.max(0L, timeoutMillis), TimeUnit.MILLISECONDS);
             } catch (InterruptedException ignored) {
+                return false;
             }
         }
+
+        return true;
     }
 }
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import dorkbox.systemTray.Checkbox;
+import dorkbox.systemTray.Entry;
+import dorkbox.systemTray.MenuItem;
+import dorkbox.systemTray.SystemTray;
+import dorkbox.util.NamedThreadFactory;
+
+/**
+ * Times every task that runs on the SystemTray event dispatch (which is where all the menu callbacks run).
+ * <p>
+ * There is only one event dispatch thread, so a callback that blocks (for example, on the network) delays every other click and menu
+ * change. When a task is still running after {@link SystemTray#SLOW_CALLBACK_THRESHOLD_MS}, the stack of the event dispatch thread is
+ * captured and reported to the listeners (or logged, if there are none).
+ * <p>
+ * The callback times are also recorded per menu entry, see {@link #getLatencies(Entry)}
+ */
+public final
+class EventDispatchWatchdog {
+    /**
+     * Notified (on the watchdog thread) when a task on the event dispatch is slow
+     */
+    public
+    interface Listener {
+        void onSlowTask(SlowTask slowTask);
+    }
+
+    /**
+     * The details of a task that is running for longer than {@link SystemTray#SLOW_CALLBACK_THRESHOLD_MS}
+     */
+    public static final
+    class SlowTask {
+        private final Entry entry;
+        private final String text;
+        private final long elapsedMillis;
+        private final StackTraceElement[] stackTrace;
+        private final int queueDepth;
+
+        SlowTask(final Entry entry, final String text, final long elapsedMillis, final StackTraceElement[] stackTrace, final int queueDepth) {
+            this.entry = entry;
+            this.text = text;
+            this.elapsedMillis = elapsedMillis;
+            this.stackTrace = stackTrace;
+            this.queueDepth = queueDepth;
+        }
+
+        /**
+         * @return the menu entry whose callback is running, or null if this is not a menu callback
+         */
+        public
+        Entry getEntry() {
+            return entry;
+        }
+
+        /**
+         * @return the text of the menu entry whose callback is running, or null if this is not a menu callback
+         */
+        public
+        String getText() {
+            return text;
+        }
+
+        /**
+         * @return how long the task has been running for (in milliseconds), when it was reported
+         */
+        public
+        long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * @return the stack of the event dispatch thread, while the task was running
+         */
+        public
+        StackTraceElement[] getStackTrace() {
+            return stackTrace.clone();
+        }
+
+        /**
+         * @return how many other tasks are waiting for this one to finish
+         */
+        public
+        int getQueueDepth() {
+            return queueDepth;
+        }
+    }
+
+    static final
+    class Task {
+        final Entry entry;
+        final Thread thread;
+        final long startTime;
+
+        volatile boolean finished = false;
+        volatile ScheduledFuture<?> check;
+
+        Task(final Entry entry, final Thread thread, final long startTime) {
+            this.entry = entry;
+            this.thread = thread;
+            this.startTime = startTime;
+        }
+    }
+
+    private static final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // the entries can be removed at any time, so they are weakly referenced. Only accessed while synchronized
+    private static final Map<Entry, LatencyHistogram> latencies = new WeakHashMap<>();
+
+    private static final ScheduledThreadPoolExecutor executor;
+    static {
+        executor = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("SystemTrayWatchdog",
+                                                                              Thread.currentThread().getThreadGroup(),
+                                                                              Thread.NORM_PRIORITY, true));
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setKeepAliveTime(10, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Adds a listener that is notified when a task on the event dispatch is slow. When there are no listeners, slow tasks are logged.
+     */
+    public static
+    void addListener(final Listener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    public static
+    void removeListener(final Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the times that the callback of this menu entry took, or null if it has not been called
+     */
+    public static synchronized
+    LatencyHistogram getLatencies(final Entry entry) {
+        return latencies.get(entry);
+    }
+
+    /**
+     * Called on the event dispatch thread, before the task runs
+     *
+     * @param entry the menu entry whose callback is being run, or null if this is not a menu callback
+     */
+    static
+    Task start(final Entry entry) {
+        Task task = new Task(entry, Thread.currentThread(), System.nanoTime());
+
+        long threshold = SystemTray.SLOW_CALLBACK_THRESHOLD_MS;
+        if (threshold > 0) {
+            task.check = executor.schedule(()->check(task), threshold, TimeUnit.MILLISECONDS);
+        }
+
+        return task;
+    }
+
+    /**
+     * Called on the event dispatch thread, after the task has run
+     */
+    static
+    void finish(final Task task) {
+        long elapsed = System.nanoTime() - task.startTime;
+
+        task.finished = true;
+        ScheduledFuture<?> check = task.check;
+        if (check != null) {
+            check.cancel(false);
+        }
+
+        if (task.entry != null) {
+            LatencyHistogram histogram;
+            synchronized (EventDispatchWatchdog.class) {
+                histogram = latencies.get(task.entry);
+                if (histogram == null) {
+                    histogram = new LatencyHistogram();
+                    latencies.put(task.entry, histogram);
+                }
+            }
+
+            histogram.record(elapsed);
+        }
+    }
+
+    private static
+    void check(final Task task) {
+        if (task.finished) {
+            return;
+        }
+
+        StackTraceElement[] stackTrace = task.thread.getStackTrace();
+        if (task.finished) {
+            // it finished while we were getting the stack, so the stack is from something else
+            return;
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - task.startTime);
+        String text = getText(task.entry);
+
+        SlowTask slowTask = new SlowTask(task.entry, text, elapsedMillis, stackTrace, EventDispatch.getQueueDepth());
+
+        if (listeners.isEmpty()) {
+            Exception stack = new Exception("Event dispatch stack");
+            stack.setStackTrace(stackTrace);
+
+            if (text != null) {
+                SystemTray.logger.warn("The callback for menu entry '{}' has been running for {} ms, and is delaying {} other task(s).",
+                                       text, elapsedMillis, slowTask.getQueueDepth(), stack);
+            } else {
+                SystemTray.logger.warn("A task on the event dispatch has been running for {} ms, and is delaying {} other task(s).",
+                                       elapsedMillis, slowTask.getQueueDepth(), stack);
+            }
+            return;
+        }
+
+        for (Listener listener : listeners) {
+            try {
+                listener.onSlowTask(slowTask);
+            } catch (Throwable e) {
+                SystemTray.logger.error("Error notifying the slow task listener.", e);
+            }
+        }
+    }
+
+    private static
+    String getText(final Entry entry) {
+        if (entry instanceof MenuItem) {
+            return ((MenuItem) entry).getText();
+        }
+        if (entry instanceof Checkbox) {
+            return ((Checkbox) entry).getText();
+        }
+        return null;
+    }
+
+    private
+    EventDispatchWatchdog() {
+    }
+}
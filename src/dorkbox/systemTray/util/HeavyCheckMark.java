@@ -84,6 +84,7 @@ public class HeavyCheckMark {
             }
         }
 
+        DiskCacheManager.touch(newFile);
         return newFile.getAbsolutePath();
     }
 
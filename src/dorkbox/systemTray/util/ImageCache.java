@@ -0,0 +1,213 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.awt.Image;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.swing.ImageIcon;
+
+import dorkbox.systemTray.SystemTray;
+
+/**
+ * A bounded, least-recently-used cache of decoded tray icon images, shared by the Swing/AWT/macOS trays.
+ * <p>
+ * The tray icon images are constantly created/destroyed, which over time leads to issues -- so we reuse what we have. If someone uses
+ * a different image every time (for example, a generated status badge), the least-recently-used images are flushed and evicted once
+ * there are more than {@link SystemTray#IMAGE_CACHE_SIZE} images.
+ * <p>
+ * Different trays can use the same image file, so each image remembers every tray that used it. An image is only flushed once no tray
+ * uses it anymore, and the image that a tray is currently showing is never evicted.
+ */
+public final
+class ImageCache {
+    private static final class CachedImage {
+        final Set<Object> owners = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Image image;
+
+        CachedImage(final Image image) {
+            this.image = image;
+        }
+    }
+
+    // access-ordered, so iteration order is least-recently-used first. Always accessed while synchronized
+    private static final LinkedHashMap<String, CachedImage> cache = new LinkedHashMap<>(16, 0.75F, true);
+
+    // the image that each owner is currently showing. Always accessed while synchronized on the cache
+    private static final Map<Object, CachedImage> showing = new IdentityHashMap<>();
+
+    private static long hits = 0;
+    private static long misses = 0;
+    private static long evictions = 0;
+
+    /**
+     * Gets the decoded image for the specified file, loading it if it's not already cached. This becomes the image that the owner is
+     * showing (replacing the previous one), which is never evicted while it is shown.
+     *
+     * @param owner the tray that is using this image. The owner stops using all of its images via {@link #clear(Object)}
+     * @param path the absolute path of the image file
+     */
+    public static
+    Image get(final Object owner, final String path) {
+        synchronized (cache) {
+            CachedImage cachedImage = cache.get(path);
+            if (cachedImage != null) {
+                hits++;
+                cachedImage.owners.add(owner);
+                showing.put(owner, cachedImage);
+                return cachedImage.image;
+            }
+
+            misses++;
+        }
+
+        // decoding can be slow, so it must not block the other trays from getting their (already cached) images
+        final Image decoded = new ImageIcon(path).getImage();
+
+        List<Image> evicted = null;
+        Image duplicate = null;
+        Image image;
+
+        synchronized (cache) {
+            CachedImage cachedImage = cache.get(path);
+            if (cachedImage != null) {
+                // someone else loaded the same image while we were decoding it, so theirs is used instead
+                cachedImage.owners.add(owner);
+                showing.put(owner, cachedImage);
+                image = cachedImage.image;
+                duplicate = decoded;
+            }
+            else {
+                image = decoded;
+
+                cachedImage = new CachedImage(image);
+                cachedImage.owners.add(owner);
+                cache.put(path, cachedImage);
+                showing.put(owner, cachedImage);
+
+                // the image we just added is shown, so it is never evicted
+                int capacity = Math.max(1, SystemTray.IMAGE_CACHE_SIZE);
+                if (cache.size() > capacity) {
+                    evicted = new ArrayList<>();
+
+                    Iterator<CachedImage> iterator = cache.values().iterator();
+                    while (cache.size() > capacity && iterator.hasNext()) {
+                        CachedImage next = iterator.next();
+                        if (showing.containsValue(next)) {
+                            continue;
+                        }
+
+                        evicted.add(next.image);
+                        iterator.remove();
+                        evictions++;
+                    }
+                }
+            }
+        }
+
+        if (duplicate != null) {
+            duplicate.flush();
+        }
+
+        if (evicted != null) {
+            for (Image evictedImage : evicted) {
+                evictedImage.flush();
+            }
+
+            if (SystemTray.DEBUG) {
+                SystemTray.logger.debug("Evicted {} image(s) from the tray image cache.", evicted.size());
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Removes the specified owner from all the images it used. The images that are no longer used by any owner are flushed and removed.
+     */
+    public static
+    void clear(final Object owner) {
+        List<Image> removed = new ArrayList<>();
+
+        synchronized (cache) {
+            showing.remove(owner);
+
+            Iterator<Map.Entry<String, CachedImage>> iterator = cache.entrySet().iterator();
+            while (iterator.hasNext()) {
+                CachedImage cachedImage = iterator.next().getValue();
+                if (cachedImage.owners.remove(owner) && cachedImage.owners.isEmpty()) {
+                    removed.add(cachedImage.image);
+                    iterator.remove();
+                }
+            }
+        }
+
+        for (Image image : removed) {
+            image.flush();
+        }
+    }
+
+    /**
+     * @return the number of images currently in the cache
+     */
+    public static
+    int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * @return the number of times an image was already in the cache
+     */
+    public static
+    long getHitCount() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    /**
+     * @return the number of times an image had to be loaded
+     */
+    public static
+    long getMissCount() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    /**
+     * @return the number of images that were flushed because the cache was full
+     */
+    public static
+    long getEvictionCount() {
+        synchronized (cache) {
+            return evictions;
+        }
+    }
+
+    private
+    ImageCache() {
+    }
+}
@@ -25,11 +25,21 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
 import javax.imageio.stream.ImageInputStream;
 
+import dorkbox.os.OS;
 import dorkbox.systemTray.SystemTray;
 import dorkbox.util.CacheUtil;
 import dorkbox.util.IO;
@@ -41,6 +51,26 @@ class ImageResizeUtil {
     // very simple regex.
     private static final Pattern JAR_URL_REGEX = Pattern.compile(".*.jar!.*");
 
+    // the most image files that we remember the resized image of
+    private static final int MAX_FINGERPRINTS = 256;
+
+    // key: the size + (path, length, last-modified) of an image file, value: the resized image. So that using the same file again does
+    // not have to read (and hash) it. Only accessed while synchronized on the SharedImageStore
+    private static final LinkedHashMap<String, File> fingerprints = new LinkedHashMap<String, File>(16, 0.75F, true) {
+        @Override
+        protected
+        boolean removeEldestEntry(final Map.Entry<String, File> eldest) {
+            return size() > MAX_FINGERPRINTS;
+        }
+    };
+
+    // image files are memory-mapped instead of being copied onto the heap. Not on windows, because a mapped file cannot be changed (or
+    // deleted) until the mapping is garbage collected
+    private static final boolean MAP_FILES = !OS.INSTANCE.isWindows();
+
+    // so that the error image is never remembered as the resized version of a file. Only accessed while synchronized on the SharedImageStore
+    private static final Set<File> errorImages = new HashSet<>();
+
     // - appIndicator/gtk require strings (which is the path)
     // - swing version loads as an image (which can be stream or path, we use path)
     private final CacheUtil cache;
@@ -67,40 +97,95 @@ class ImageResizeUtil {
         }
     }
 
-    public synchronized
-    File getErrorImage(int size) {
-        if (size <= 0) {
-            // default size
-            size = 32;
-        }
+    /**
+     * @return the error image (referenced, see {@link SharedImageStore}) at the specified size
+     */
+    public
+    File getErrorImage(final int size) {
+        // default size
+        final int imageSize = size <= 0 ? 32 : size;
 
         try {
             @SuppressWarnings("ConstantConditions")
             InputStream imageStream = ImageResizeUtil.class.getResource("error_32.png").openStream();
 
             // have to resize the image to be whatever size we specify
-            imageStream = makeByteArrayInputStream(imageStream);
-            imageStream.mark(0);
+            Murmur3Hash hash = new Murmur3Hash();
+            imageStream = readAndHash(imageStream, hash);
 
             // check if we already have this file information saved to disk, based on size + hash of data
-            final String cacheName = size + "_" + CacheUtil.Companion.createNameAsHash(imageStream);
-            ((ByteArrayInputStream) imageStream).reset();  // casting to avoid unnecessary try/catch for IOException
+            final String cacheName = imageSize + "_" + hash.toHexString();
 
 
             // if we already have this fileName, reuse it
+            File file = trackCached(cacheName);
+            if (file == null) {
+                // we have to hop through hoops.
+                File resizedFile = resizeFileNoCheck(imageSize, imageStream);
+
+                // now cache that file
+                file = saveResized(cacheName, resizedFile);
+            }
+
+            synchronized (SharedImageStore.class) {
+                errorImages.add(file);
+            }
+            return file;
+        } catch (Exception e) {
+            // this must be thrown
+            throw new RuntimeException("Serious problems! Unable to extract error image, this should NEVER happen!", e);
+        }
+    }
+
+    /**
+     * @return the image (referenced, see {@link SharedImageStore}) if it is already in the image cache, otherwise null
+     */
+    private
+    File trackCached(final String cacheName) {
+        // the image cache is shared by all trays. Only checking + referencing the cached image is locked, and decoding/resizing images
+        // happens outside the lock, so that one tray does not block the others.
+        synchronized (SharedImageStore.class) {
             final File check = cache.check(cacheName);
+            if (check != null && check.canRead()) {
+                DiskCacheManager.touch(check);
+                return SharedImageStore.track(check);
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Saves the image to the image cache, unless another thread already saved the same image (in which case that one is used).
+     *
+     * @return the cached image (referenced, see {@link SharedImageStore})
+     */
+    private
+    File saveAndTrack(final String cacheName, final File image) throws IOException {
+        synchronized (SharedImageStore.class) {
+            final File check = trackCached(cacheName);
             if (check != null) {
                 return check;
             }
 
-            // we have to hop through hoops.
-            File resizedFile = resizeFileNoCheck(size, imageStream);
+            return SharedImageStore.track(SharedImageStore.saved(cache.save(cacheName, image)));
+        }
+    }
 
-            // now cache that file
-            return cache.save(cacheName, resizedFile);
-        } catch (Exception e) {
-            // this must be thrown
-            throw new RuntimeException("Serious problems! Unable to extract error image, this should NEVER happen!", e);
+    /**
+     * Saves the image to the image cache, unless another thread already saved the same image (in which case that one is used).
+     *
+     * @return the cached image (referenced, see {@link SharedImageStore})
+     */
+    private
+    File saveAndTrack(final String cacheName, final InputStream image) throws IOException {
+        synchronized (SharedImageStore.class) {
+            final File check = trackCached(cacheName);
+            if (check != null) {
+                return check;
+            }
+
+            return SharedImageStore.track(SharedImageStore.saved(cache.save(cacheName, image)));
         }
     }
 
@@ -131,11 +216,42 @@ class ImageResizeUtil {
 
                 URL jarResource = new URL(fileName);
                 inputStream = jarResource.openStream();
-            } else {
-                inputStream = new FileInputStream(fileName);
+                return resizeAndCache(size, inputStream);
+            }
+
+            // if this file hasn't changed since we last resized it, we can reuse that without reading the file again
+            final File imageFile = new File(fileName);
+            final String fingerprint = getFingerprint(size, imageFile);
+
+            if (fingerprint != null) {
+                synchronized (SharedImageStore.class) {
+                    File check = fingerprints.get(fingerprint);
+                    if (check != null && check.canRead()) {
+                        DiskCacheManager.touch(check);
+                        return SharedImageStore.track(check);
+                    }
+                }
+            }
+
+            File file = null;
+            if (MAP_FILES && imageFile.isFile()) {
+                file = resizeAndCacheMapped(size, imageFile);
+            }
+
+            if (file == null) {
+                inputStream = new FileInputStream(imageFile);
+                file = resizeAndCache(size, inputStream);
             }
 
-            return resizeAndCache(size, inputStream);
+            if (fingerprint != null && file != null) {
+                synchronized (SharedImageStore.class) {
+                    if (!errorImages.contains(file)) {
+                        fingerprints.put(fingerprint, file);
+                    }
+                }
+            }
+
+            return file;
         } catch (Exception e) {
             // have to serve up the error image instead.
             SystemTray.logger.error("Error reading image. Using error icon instead", e);
@@ -150,8 +266,164 @@ class ImageResizeUtil {
         }
     }
 
+    // null if the file does not exist
+    private static
+    String getFingerprint(final int size, final File imageFile) {
+        final long lastModified = imageFile.lastModified();
+        if (lastModified == 0L) {
+            return null;
+        }
+
+        return size + "_" + imageFile.getAbsolutePath() + "_" + imageFile.length() + "_" + lastModified;
+    }
+
+    /**
+     * Remembers that an image file was already resized (at the size of the cached image) by a previous launch, so that using it again
+     * does not have to read (or hash) it. See {@link dorkbox.systemTray.SystemTray#restoreSnapshot(java.nio.file.Path)}
+     *
+     * @param sourceImage the original image file, which must not have changed since it was resized
+     * @param cachedImage the resized image file, which is in the image cache
+     */
+    public static
+    void rememberCached(final File sourceImage, final File cachedImage) {
+        final Dimension imageSize;
+        try (ImageInputStream imageStream = ImageIO.createImageInputStream(cachedImage)) {
+            if (imageStream == null) {
+                return;
+            }
+
+            imageSize = getImageSize(imageStream);
+        } catch (Exception e) {
+            if (SystemTray.DEBUG) {
+                SystemTray.logger.debug("Unable to read the size of the cached image: {}", cachedImage, e);
+            }
+            return;
+        }
+
+        //noinspection NumericCastThatLosesPrecision
+        final int size = (int) imageSize.getWidth();
+        //noinspection NumericCastThatLosesPrecision
+        if (size != (int) imageSize.getHeight()) {
+            // we only ever cache square images
+            return;
+        }
+
+        final String fingerprint = getFingerprint(size, sourceImage);
+        if (fingerprint != null) {
+            synchronized (SharedImageStore.class) {
+                fingerprints.put(fingerprint, cachedImage);
+            }
+        }
+    }
+
+    /**
+     * The same as {@link #resizeAndCache(int, InputStream)}, except that the file is memory-mapped, so that it is hashed and read by
+     * ImageIO without copying it onto the heap.
+     *
+     * @return the cached image (referenced, see {@link SharedImageStore}), or null if the file could not be mapped (and must be read
+     *         normally instead)
+     */
+    private
+    File resizeAndCacheMapped(final int size, final File imageFile) {
+        final MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(imageFile.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length == 0 || length > Integer.MAX_VALUE) {
+                return null;
+            }
+
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        } catch (Exception e) {
+            if (SystemTray.DEBUG) {
+                SystemTray.logger.debug("Unable to map image file. Reading it instead: {}", imageFile, e);
+            }
+            return null;
+        }
+
+        final String cacheName;
+        try {
+            Murmur3Hash hash = new Murmur3Hash();
+            hash.update(buffer);
+
+            // check if we already have this file information saved to disk, based on size + hash of data
+            cacheName = size + "_" + hash.toHexString();
+
+
+            // if we already have this fileName, reuse it
+            final File check = trackCached(cacheName);
+            if (check != null) {
+                return check;
+            }
+
+
+            Dimension imageSize = getImageSize(new ByteBufferImageInputStream(buffer));
+            //noinspection NumericCastThatLosesPrecision
+            if (size == (int) imageSize.getHeight() && size == (int) imageSize.getWidth()) {
+                // no resize necessary, just cache as is. This is copied from the file (and not the mapping), since it is the same data.
+                try {
+                    return saveAndTrack(cacheName, imageFile);
+                } catch (Exception e) {
+                    // have to serve up the error image instead.
+                    SystemTray.logger.error("Error caching image. Using error icon instead", e);
+                    return getErrorImage(size);
+                }
+            }
+        } catch (Exception e) {
+            // have to serve up the error image instead.
+            SystemTray.logger.error("Error getting image size. Using error icon instead", e);
+            return getErrorImage(size);
+        }
+
+
+        // we have to hop through hoops.
+        try {
+            // the image readers can discard what they have already read, so this must be a new stream
+            Image image = ImageIO.read(new ByteBufferImageInputStream(buffer));
+            if (image == null) {
+                throw new IOException("Unknown image format: " + imageFile);
+            }
+
+            File resizedFile = resizeImageNoCheck(size, image);
+
+            // now cache that file
+            try {
+                return saveResized(cacheName, resizedFile);
+            } catch (Exception e) {
+                // have to serve up the error image instead.
+                SystemTray.logger.error("Error caching image. Using error icon instead", e);
+                return getErrorImage(size);
+            }
+
+        } catch (Exception e) {
+            // have to serve up the error image instead.
+            SystemTray.logger.error("Error resizing image. Using error icon instead", e);
+            return getErrorImage(size);
+        }
+    }
+
+    // reads the image size from the header, without reading the entire image
+    private static
+    Dimension getImageSize(final ImageInputStream imageStream) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(imageStream);
+        if (!readers.hasNext()) {
+            throw new IOException("Unknown image format");
+        }
+
+        ImageReader reader = readers.next();
+        try {
+            reader.setInput(imageStream, true, true);
+            return new Dimension(reader.getWidth(0), reader.getHeight(0));
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /**
+     * @return the cached image (referenced, see {@link SharedImageStore})
+     */
     @SuppressWarnings("Duplicates")
-    private synchronized
+    private
     File resizeAndCache(final int size, InputStream imageStream) {
         if (imageStream == null) {
             return null;
@@ -162,17 +434,17 @@ class ImageResizeUtil {
         // no cached file, so we resize then save the new one.
         boolean needsResize = true;
         try {
-            imageStream = makeByteArrayInputStream(imageStream);
-            imageStream.mark(0);
+            // the data is hashed while it is read, since we need a copy of it anyways (in case it has to be resized)
+            Murmur3Hash hash = new Murmur3Hash();
+            imageStream = readAndHash(imageStream, hash);
 
             // check if we already have this file information saved to disk, based on size + hash of data
-            cacheName = size + "_" + CacheUtil.Companion.createNameAsHash(imageStream);
-            ((ByteArrayInputStream) imageStream).reset();  // casting to avoid unnecessary try/catch for IOException
+            cacheName = size + "_" + hash.toHexString();
 
 
             // if we already have this fileName, reuse it
-            final File check = cache.check(cacheName);
-            if (check != null && check.canRead()) {
+            final File check = trackCached(cacheName);
+            if (check != null) {
                 return check;
             }
 
@@ -201,7 +473,7 @@ class ImageResizeUtil {
 
                 // now cache that file
                 try {
-                    return cache.save(cacheName, resizedFile);
+                    return saveResized(cacheName, resizedFile);
                 } catch (Exception e) {
                     // have to serve up the error image instead.
                     SystemTray.logger.error("Error caching image. Using error icon instead", e);
@@ -217,7 +489,7 @@ class ImageResizeUtil {
         } else {
             // no resize necessary, just cache as is.
             try {
-                return cache.save(cacheName, imageStream);
+                return saveAndTrack(cacheName, imageStream);
             } catch (Exception e) {
                 // have to serve up the error image instead.
                 SystemTray.logger.error("Error caching image. Using error icon instead", e);
@@ -226,17 +498,25 @@ class ImageResizeUtil {
         }
     }
 
-    // if this input stream is NOT a ByteArrayInputStream, make it one.
+    // reads (and closes) the input stream into a ByteArrayInputStream, hashing the data as it is read
     private static
-    InputStream makeByteArrayInputStream(InputStream imageStream) throws IOException {
-        if (!(imageStream instanceof ByteArrayInputStream)) {
-            // have to make a copy of the inputStream, but only if necessary
-            ByteArrayOutputStream byteArrayOutputStream = IO.copyStream(imageStream);
-            imageStream.close();
+    ByteArrayInputStream readAndHash(final InputStream imageStream, final Murmur3Hash hash) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(8192);
 
-            imageStream = new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = imageStream.read(buffer)) != -1) {
+                hash.update(buffer, 0, read);
+                byteArrayOutputStream.write(buffer, 0, read);
+            }
+        } finally {
+            imageStream.close();
         }
-        return imageStream;
+
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(byteArrayOutputStream.toByteArray());
+        inputStream.mark(0);
+        return inputStream;
     }
 
 
@@ -247,16 +527,29 @@ class ImageResizeUtil {
      *
      * @return the file on disk that is the resized icon
      */
-    @SuppressWarnings("ResultOfMethodCallIgnored")
     private
     File resizeFileNoCheck(final int size, InputStream inputStream) throws IOException {
         // have to resize the file (and return the new path)
+        Image image = ImageIO.read(inputStream);
+        return resizeImageNoCheck(size, image);
+    }
+
+    // saves the resized image to the cache, then deletes the temp file it was resized into
+    @SuppressWarnings("ResultOfMethodCallIgnored")
+    private
+    File saveResized(final String cacheName, final File resizedFile) throws IOException {
+        try {
+            return saveAndTrack(cacheName, resizedFile);
+        } finally {
+            resizedFile.delete();
+        }
+    }
 
-        File newFile = cache.create("temp_resize.png");
-        // if it's already there, we have to delete it
-        newFile.delete();
+    private
+    File resizeImageNoCheck(final int size, final Image image) throws IOException {
+        // unique for every resize, since other copies of this application can use the same cache at the same time
+        File newFile = File.createTempFile("SystemTray_resize_", ".png");
 
-        Image image = ImageIO.read(inputStream);
         ImageUtil.waitForImageLoad(image);
 
         BufferedImage bufferedImage = ImageUtil.getBufferedImage(image);
@@ -339,7 +632,7 @@ class ImageResizeUtil {
 
                 return file;
             } else {
-                return cache.save(imageUrl);
+                return saveAndTrack(imageUrl);
             }
         } catch (Exception e) {
             // have to serve up the error image instead.
@@ -362,7 +655,7 @@ class ImageResizeUtil {
             return resizeAndCache(size, imageStream);
         } else {
             try {
-                return cache.save(imageStream);
+                return saveAndTrack(imageStream);
             } catch (IOException e) {
                 SystemTray.logger.error("Error checking cache for information. Using error icon instead", e);
                 return getErrorImage(size);
@@ -395,7 +688,7 @@ class ImageResizeUtil {
                 }
                 file = resizeAndCache(size, imageInputStream);
             } else {
-                file = cache.save(imageInputStream);
+                file = saveAndTrack(imageInputStream);
             }
 
             imageInputStream.close(); // ByteArrayOutputStream doesn't do anything, but here for completeness + documentation
@@ -424,7 +717,7 @@ class ImageResizeUtil {
                 }
                 return resizeAndCache(size, fileStream);
             } else {
-                return cache.save(fileStream);
+                return saveAndTrack(fileStream);
             }
         } catch (Exception e) {
             // have to serve up the error image instead.
@@ -433,6 +726,28 @@ class ImageResizeUtil {
         }
     }
 
+    private
+    File saveAndTrack(final URL imageUrl) throws IOException {
+        // the image cache is shared by all trays
+        synchronized (SharedImageStore.class) {
+            return SharedImageStore.track(cache.save(imageUrl));
+        }
+    }
+
+    private
+    File saveAndTrack(final InputStream imageStream) throws IOException {
+        // this is read before locking the image cache, since reading the stream can be slow
+        InputStream bytes = imageStream;
+        if (!(imageStream instanceof ByteArrayInputStream)) {
+            bytes = new ByteArrayInputStream(IO.copyStream(imageStream).toByteArray());
+        }
+
+        // the image cache is shared by all trays
+        synchronized (SharedImageStore.class) {
+            return SharedImageStore.track(cache.save(bytes));
+        }
+    }
+
     private static
     int getSize(final boolean isTrayImage) {
         int size;
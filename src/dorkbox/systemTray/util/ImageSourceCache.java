@@ -0,0 +1,127 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+
+import dorkbox.systemTray.SystemTray;
+import dorkbox.util.CacheUtil;
+import dorkbox.util.IO;
+import dorkbox.util.ImageUtil;
+import dorkbox.util.NamedThreadFactory;
+
+/**
+ * Saves the original images of menu entries (that are not displayed yet) to the shared image cache in the background.
+ * <p>
+ * An entry can be created long before it is added to a menu (or never be added at all), and until then it would keep its image (or
+ * stream) in memory. Instead, the image is saved as-is, and the entry only keeps the file -- which is resized once the entry is displayed.
+ */
+public final
+class ImageSourceCache {
+    // so that creating a lot of entries does not create a lot of threads
+    private static final int MAX_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    private static final ThreadPoolExecutor executor;
+    static {
+        executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                          new NamedThreadFactory("SystemTrayImageLoader", Thread.currentThread().getThreadGroup(),
+                                                                 Thread.NORM_PRIORITY, true));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return true if the image is held in memory (or is a stream), and should be saved to the image cache instead
+     */
+    public static
+    boolean isHeavy(final Object image) {
+        return image instanceof Image || image instanceof InputStream || image instanceof ImageInputStream;
+    }
+
+    /**
+     * Runs the task on one of the (limited number of) image loading threads.
+     */
+    public static
+    Future<?> submit(final Runnable task) {
+        return executor.submit(task);
+    }
+
+    /**
+     * Saves the original (not resized) image to the shared image cache. Streams are read (and closed), so they cannot be used again.
+     *
+     * @return the cached image (referenced, see {@link SharedImageStore}), or null if it could not be saved (or no tray has been created
+     *         yet)
+     */
+    public static
+    File save(final Object image) {
+        try {
+            // this is read before locking the image cache, since reading the image can be slow
+            InputStream imageStream;
+            if (image instanceof Image) {
+                ImageUtil.waitForImageLoad((Image) image);
+                BufferedImage bufferedImage = ImageUtil.getBufferedImage((Image) image);
+
+                ByteArrayOutputStream os = new ByteArrayOutputStream();
+                ImageIO.write(bufferedImage, "png", os);
+                imageStream = new ByteArrayInputStream(os.toByteArray());
+            }
+            else if (image instanceof InputStream) {
+                InputStream inputStream = (InputStream) image;
+                try {
+                    imageStream = new ByteArrayInputStream(IO.copyStream(inputStream).toByteArray());
+                } finally {
+                    inputStream.close();
+                }
+            }
+            else if (image instanceof ImageInputStream) {
+                imageStream = new ByteArrayInputStream(IO.copyStream((ImageInputStream) image).toByteArray());
+            }
+            else {
+                return null;
+            }
+
+            // the image cache is shared by all trays
+            synchronized (SharedImageStore.class) {
+                CacheUtil cache = SharedImageStore.getCache();
+                if (cache == null) {
+                    // no tray has been created yet, so there is no cache for this application
+                    return null;
+                }
+
+                File file = SharedImageStore.saved(cache.save(imageStream));
+                return SharedImageStore.track(file);
+            }
+        } catch (Exception e) {
+            SystemTray.logger.error("Error saving the image to the image cache.", e);
+            return null;
+        }
+    }
+
+    private
+    ImageSourceCache() {
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A histogram of how long something took, using power-of-two buckets (in milliseconds): under 1ms, under 2ms, under 4ms, ... and the
+ * last bucket has everything that took longer than that.
+ */
+public final
+class LatencyHistogram {
+    private static final int BUCKET_COUNT = 18;
+
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long count = 0;
+    private long totalNanos = 0;
+    private long maxNanos = 0;
+
+    synchronized
+    void record(final long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(Math.max(0, nanos));
+
+        // 0ms -> 0, 1ms -> 1, 2-3ms -> 2, 4-7ms -> 3, etc
+        int bucket = 64 - Long.numberOfLeadingZeros(millis);
+        buckets[Math.min(bucket, BUCKET_COUNT - 1)]++;
+
+        count++;
+        totalNanos += nanos;
+        maxNanos = Math.max(maxNanos, nanos);
+    }
+
+    /**
+     * @return the upper bound (exclusive, in milliseconds) of the bucket, or Long.MAX_VALUE for the last bucket
+     */
+    public static
+    long getBucketLimit(final int bucket) {
+        if (bucket >= BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        return 1L << bucket;
+    }
+
+    /**
+     * @return a copy of the number of times that fell into each bucket. See {@link #getBucketLimit(int)}
+     */
+    public synchronized
+    long[] getBuckets() {
+        return buckets.clone();
+    }
+
+    /**
+     * @return how many times were recorded
+     */
+    public synchronized
+    long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the average time (in milliseconds)
+     */
+    public synchronized
+    double getMeanMillis() {
+        if (count == 0) {
+            return 0.0;
+        }
+        return totalNanos / (double) count / 1_000_000.0;
+    }
+
+    /**
+     * @return the longest time (in milliseconds)
+     */
+    public synchronized
+    double getMaxMillis() {
+        return maxNanos / 1_000_000.0;
+    }
+
+    /**
+     * @param percentile between 0.0 and 1.0 (for example, 0.99)
+     *
+     * @return the upper bound (in milliseconds) of the bucket that contains that percentile, or Long.MAX_VALUE if it is in the last bucket
+     */
+    public synchronized
+    long getPercentileLimit(final double percentile) {
+        long target = (long) Math.ceil(count * Math.min(1.0, Math.max(0.0, percentile)));
+
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets[i];
+            if (seen >= target && seen > 0) {
+                return getBucketLimit(i);
+            }
+        }
+
+        return 0L;
+    }
+
+    @Override
+    public synchronized
+    String toString() {
+        return "count=" + count + ", mean=" + String.format("%.1f", getMeanMillis()) + "ms, p99<" + getPercentileLimit(0.99) + "ms, max=" +
+               String.format("%.1f", getMaxMillis()) + "ms";
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dorkbox.systemTray.SystemTray;
+
+/**
+ * Tracks whether a tray menu is open, and (when {@link SystemTray#DEFER_HIDDEN_MENU_UPDATES} is enabled) holds on to the changes to the
+ * native menu entries while it is closed. Only the latest change (of each property, of each entry) is kept, and they are all applied
+ * just before the menu is shown.
+ * <p>
+ * The entire menu (including the sub-menus) is shared, since the sub-menus cannot be open while the menu is closed. Changes are
+ * always applied immediately, unless the tray tells us when the menu is shown and hidden.
+ */
+public final
+class MenuVisibility {
+    private static final int PROPERTY_COUNT = 6;
+
+    /**
+     * The checked state of a checkbox. The other properties are in {@link PeerState}
+     */
+    public static final int CHECKED = 5;
+
+    private static final AtomicLong deferred = new AtomicLong();
+    private static final AtomicLong superseded = new AtomicLong();
+
+    // every change gets the next number. Changes numbered up to `discardUpTo` are discarded instead of applied (see discardPending())
+    private static final AtomicLong updateSequence = new AtomicLong();
+    private static volatile long discardUpTo = 0;
+    private static final AtomicLong discarded = new AtomicLong();
+
+    private final Executor dispatch;
+
+    // the latest change of each property, by the peer. Only accessed while synchronized
+    private final Map<Object, Runnable[]> pending = new LinkedHashMap<>();
+
+    private boolean tracked = false;
+    private boolean visible = false;
+
+    /**
+     * @param dispatch how changes are run on the native UI thread
+     */
+    public
+    MenuVisibility(final Executor dispatch) {
+        this.dispatch = dispatch;
+    }
+
+    /**
+     * Called by the tray, once it will call {@link #shown()} and {@link #hidden()} when the menu opens and closes.
+     */
+    public synchronized
+    void setTracked() {
+        tracked = true;
+    }
+
+    /**
+     * Runs the change of the native menu entry on the native UI thread, or keeps it until the menu is shown (if the menu is closed).
+     */
+    public
+    void dispatch(final Object peer, final int property, final Runnable change) {
+        final long updateId = updateSequence.incrementAndGet();
+        final Runnable update = ()->{
+            if (updateId <= discardUpTo) {
+                discarded.incrementAndGet();
+                return;
+            }
+
+            change.run();
+        };
+
+        synchronized (this) {
+            if (tracked && !visible && SystemTray.DEFER_HIDDEN_MENU_UPDATES) {
+                Runnable[] updates = pending.get(peer);
+                if (updates == null) {
+                    updates = new Runnable[PROPERTY_COUNT];
+                    pending.put(peer, updates);
+                }
+
+                if (updates[property] != null) {
+                    superseded.incrementAndGet();
+                }
+                updates[property] = update;
+
+                deferred.incrementAndGet();
+                return;
+            }
+        }
+
+        dispatch.execute(update);
+    }
+
+    /**
+     * Forgets the changes of a native menu entry that is being removed.
+     */
+    public synchronized
+    void discard(final Object peer) {
+        pending.remove(peer);
+    }
+
+    /**
+     * Applies all of the changes made while the menu was closed. This MUST be called on the native UI thread, just before the menu is shown.
+     */
+    public
+    void shown() {
+        List<Runnable[]> updates;
+        synchronized (this) {
+            visible = true;
+
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            updates = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+
+        for (Runnable[] peerUpdates : updates) {
+            for (Runnable update : peerUpdates) {
+                if (update != null) {
+                    try {
+                        update.run();
+                    } catch (Throwable e) {
+                        SystemTray.logger.error("Error updating the menu.", e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Called on the native UI thread, once the menu is closed.
+     */
+    public synchronized
+    void hidden() {
+        visible = false;
+    }
+
+    /**
+     * Discards all the changes (of every menu) that have not been applied yet. Changes made after this are applied as usual.
+     * <p>
+     * This is only for a fast shutdown, when the menus are about to be removed anyway.
+     */
+    public static
+    void discardPending() {
+        discardUpTo = updateSequence.get();
+    }
+
+    /**
+     * @return the number of changes that were discarded (instead of applied) by {@link #discardPending()}
+     */
+    public static
+    long getDiscardedCount() {
+        return discarded.get();
+    }
+
+    /**
+     * @return the number of changes that were kept until a menu was shown
+     */
+    public static
+    long getDeferredCount() {
+        return deferred.get();
+    }
+
+    /**
+     * @return the number of kept changes that were replaced by a later change before the menu was shown (so they never had to be applied)
+     */
+    public static
+    long getSupersededCount() {
+        return superseded.get();
+    }
+}
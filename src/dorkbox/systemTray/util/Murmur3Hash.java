@@ -0,0 +1,200 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A streaming version of MurmurHash3 (x64, 128-bit).
+ * <p>
+ * This is a fast, non-cryptographic hash, which is only used to name the cached images. The data can be hashed in pieces (as it is
+ * read), and the result is the same as hashing all of it at once.
+ */
+final
+class Murmur3Hash {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private long h1 = 0;
+    private long h2 = 0;
+    private long length = 0;
+
+    // the bytes that have not been hashed yet, because there were not enough of them for a 16-byte block
+    private final byte[] tail = new byte[16];
+    private int tailLength = 0;
+
+    void update(final byte[] bytes, int offset, int count) {
+        length += count;
+
+        if (tailLength > 0) {
+            int needed = Math.min(16 - tailLength, count);
+            System.arraycopy(bytes, offset, tail, tailLength, needed);
+            tailLength += needed;
+            offset += needed;
+            count -= needed;
+
+            if (tailLength < 16) {
+                return;
+            }
+
+            mixBlock(getLong(tail, 0), getLong(tail, 8));
+            tailLength = 0;
+        }
+
+        while (count >= 16) {
+            mixBlock(getLong(bytes, offset), getLong(bytes, offset + 8));
+            offset += 16;
+            count -= 16;
+        }
+
+        if (count > 0) {
+            System.arraycopy(bytes, offset, tail, 0, count);
+            tailLength = count;
+        }
+    }
+
+    /**
+     * Hashes the remaining bytes of the buffer, without changing its position.
+     */
+    void update(final ByteBuffer buffer) {
+        ByteBuffer data = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        length += data.remaining();
+
+        while (tailLength > 0 && data.hasRemaining()) {
+            tail[tailLength++] = data.get();
+
+            if (tailLength == 16) {
+                mixBlock(getLong(tail, 0), getLong(tail, 8));
+                tailLength = 0;
+            }
+        }
+
+        while (data.remaining() >= 16) {
+            mixBlock(data.getLong(), data.getLong());
+        }
+
+        int remaining = data.remaining();
+        if (remaining > 0) {
+            data.get(tail, 0, remaining);
+            tailLength = remaining;
+        }
+    }
+
+    /**
+     * Finishes the hash. This can only be called once.
+     *
+     * @return the 128-bit hash, as 32 hex characters
+     */
+    String toHexString() {
+        long k1 = 0;
+        long k2 = 0;
+
+        // the remaining bytes (if any), which are little-endian
+        for (int i = tailLength - 1; i >= 8; i--) {
+            k2 = (k2 << 8) | (tail[i] & 0xFF);
+        }
+        for (int i = Math.min(tailLength, 8) - 1; i >= 0; i--) {
+            k1 = (k1 << 8) | (tail[i] & 0xFF);
+        }
+
+        if (tailLength > 8) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            k2 *= C1;
+            h2 ^= k2;
+        }
+        if (tailLength > 0) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            k1 *= C2;
+            h1 ^= k1;
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+
+        h1 += h2;
+        h2 += h1;
+
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+
+        h1 += h2;
+        h2 += h1;
+
+        char[] chars = new char[32];
+        toHex(h1, chars, 0);
+        toHex(h2, chars, 16);
+        return new String(chars);
+    }
+
+    private
+    void mixBlock(long k1, long k2) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        h1 ^= k1;
+
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        h2 ^= k2;
+
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    private static
+    long getLong(final byte[] bytes, final int offset) {
+        return (bytes[offset] & 0xFFL) |
+               (bytes[offset + 1] & 0xFFL) << 8 |
+               (bytes[offset + 2] & 0xFFL) << 16 |
+               (bytes[offset + 3] & 0xFFL) << 24 |
+               (bytes[offset + 4] & 0xFFL) << 32 |
+               (bytes[offset + 5] & 0xFFL) << 40 |
+               (bytes[offset + 6] & 0xFFL) << 48 |
+               (bytes[offset + 7] & 0xFFL) << 56;
+    }
+
+    private static
+    long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    // little-endian, so that the hex matches the usual murmur3 byte order
+    private static
+    void toHex(long value, final char[] chars, int offset) {
+        for (int i = 0; i < 8; i++) {
+            int b = (int) (value & 0xFF);
+            chars[offset++] = HEX[b >>> 4];
+            chars[offset++] = HEX[b & 0xF];
+            value >>>= 8;
+        }
+    }
+}
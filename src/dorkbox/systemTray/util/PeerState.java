@@ -0,0 +1,116 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The last values that a peer applied to its native menu entry, so that setting the same value again (which happens a lot when a menu
+ * is refreshed) does not have to dispatch anything to the native UI.
+ * <p>
+ * The number of changes that were skipped (and applied) are counted for all peers, see {@link #getElidedCount(int)}
+ */
+public final
+class PeerState {
+    public static final int TEXT = 0;
+    public static final int ENABLED = 1;
+    public static final int IMAGE = 2;
+    public static final int TOOLTIP = 3;
+    public static final int SHORTCUT = 4;
+
+    private static final int PROPERTY_COUNT = 5;
+
+    // so that the first value is always applied, even if it is null
+    private static final Object UNSET = new Object();
+
+    private static final AtomicLongArray elided = new AtomicLongArray(PROPERTY_COUNT);
+    private static final AtomicLongArray applied = new AtomicLongArray(PROPERTY_COUNT);
+
+    private final Object[] values = new Object[PROPERTY_COUNT];
+
+    public
+    PeerState() {
+        Arrays.fill(values, UNSET);
+    }
+
+    /**
+     * Remembers the new value of the property.
+     * <p>
+     * Images are compared by their path, size, and last-modified time, because the same file can be rewritten with a different image.
+     *
+     * @return true if the value changed (and must be applied to the native menu entry), false if it is the same as the last value
+     */
+    public synchronized
+    boolean update(final int property, final Object newValue) {
+        Object value = newValue;
+        if (property == IMAGE && newValue instanceof File) {
+            File file = (File) newValue;
+            value = Arrays.asList(file.getAbsolutePath(), file.length(), file.lastModified());
+        }
+
+        if (Objects.equals(values[property], value)) {
+            elided.incrementAndGet(property);
+            return false;
+        }
+
+        values[property] = value;
+        applied.incrementAndGet(property);
+        return true;
+    }
+
+    /**
+     * @return the number of times the property was set to the same value, which did not have to be applied to the native menu entry
+     */
+    public static
+    long getElidedCount(final int property) {
+        return elided.get(property);
+    }
+
+    /**
+     * @return the number of times the property was changed, which was applied to the native menu entry
+     */
+    public static
+    long getAppliedCount(final int property) {
+        return applied.get(property);
+    }
+
+    /**
+     * @return the number of times any property was set to the same value
+     */
+    public static
+    long getElidedCount() {
+        long count = 0;
+        for (int i = 0; i < PROPERTY_COUNT; i++) {
+            count += elided.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of times any property was changed
+     */
+    public static
+    long getAppliedCount() {
+        long count = 0;
+        for (int i = 0; i < PROPERTY_COUNT; i++) {
+            count += applied.get(i);
+        }
+        return count;
+    }
+}
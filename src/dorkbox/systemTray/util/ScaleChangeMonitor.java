@@ -0,0 +1,164 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import static dorkbox.jna.linux.Gtk.Gtk2;
+
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.beans.PropertyChangeListener;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.jna.Pointer;
+
+import dorkbox.jna.linux.GCallback;
+import dorkbox.jna.linux.GObject;
+import dorkbox.jna.linux.GtkEventDispatch;
+import dorkbox.os.OS;
+import dorkbox.systemTray.SystemTray;
+import dorkbox.util.NamedThreadFactory;
+
+/**
+ * Watches for changes to the screen DPI/scale (for example, when a laptop is connected to a high-DPI monitor), and then re-calculates
+ * the tray + menu image sizes.
+ * <p>
+ * Changes usually arrive in a burst (every property that changed fires its own event), so they are collapsed into a single refresh.
+ */
+public final
+class ScaleChangeMonitor {
+    // how long to wait for more changes, before re-calculating the image sizes
+    private static final long DEBOUNCE_MS = 500L;
+
+    private static final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    // these are only accessed while synchronized
+    private static boolean started = false;
+    private static SystemTray.TrayType trayType;
+    private static ScheduledThreadPoolExecutor executor;
+    private static ScheduledFuture<?> pendingRefresh;
+
+    // GTK only keeps a native pointer to this, so we must keep a strong reference (otherwise it will be GC'd)
+    @SuppressWarnings({"FieldCanBeLocal", "unused"})
+    private static GCallback gtkDpiCallback;
+
+    /**
+     * Starts watching for screen DPI/scale changes. This only does something the first time it is called.
+     */
+    public static synchronized
+    void start(final SystemTray.TrayType trayType) {
+        if (started) {
+            return;
+        }
+        started = true;
+
+        ScaleChangeMonitor.trayType = trayType;
+
+        executor = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("SystemTrayScaleChange",
+                                                                             Thread.currentThread().getThreadGroup(),
+                                                                             Thread.NORM_PRIORITY, true));
+        executor.setKeepAliveTime(10, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+
+        if (!GraphicsEnvironment.isHeadless()) {
+            // linux (XSETTINGS) and windows both report DPI changes as an AWT desktop property
+            PropertyChangeListener listener = event->scheduleRefresh();
+            Toolkit toolkit = Toolkit.getDefaultToolkit();
+            toolkit.addPropertyChangeListener("gnome.Xft/DPI", listener);
+            toolkit.addPropertyChangeListener("win.defaultGUI.font", listener);
+        }
+
+        if (OS.INSTANCE.isLinux() && (trayType == SystemTray.TrayType.Gtk || trayType == SystemTray.TrayType.AppIndicator)) {
+            // AWT is not always loaded (or listening to XSETTINGS) when using the native GTK trays
+            GtkEventDispatch.dispatch(()->{
+                Pointer screen = Gtk2.gdk_screen_get_default();
+                if (screen == null) {
+                    return;
+                }
+
+                Pointer settings = Gtk2.gtk_settings_get_for_screen(screen);
+                if (settings == null) {
+                    return;
+                }
+
+                gtkDpiCallback = new GCallback() {
+                    @Override
+                    public
+                    int callback(final Pointer instance, final Pointer data) {
+                        scheduleRefresh();
+                        return Gtk2.TRUE;
+                    }
+                };
+                GObject.g_signal_connect_object(settings, "notify::gtk-xft-dpi", gtkDpiCallback, null, 0);
+            });
+        }
+    }
+
+    /**
+     * Adds a listener that is run (on a background thread) after the tray or menu image size has changed.
+     */
+    public static
+    void addListener(final Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public static
+    void removeListener(final Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private static synchronized
+    void scheduleRefresh() {
+        if (pendingRefresh != null) {
+            pendingRefresh.cancel(false);
+        }
+
+        pendingRefresh = executor.schedule(ScaleChangeMonitor::refresh, DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static
+    void refresh() {
+        SystemTray.TrayType trayType;
+        synchronized (ScaleChangeMonitor.class) {
+            pendingRefresh = null;
+            trayType = ScaleChangeMonitor.trayType;
+        }
+
+        try {
+            if (!SizeAndScaling.refreshSizes(trayType)) {
+                return;
+            }
+        } catch (Exception e) {
+            SystemTray.logger.error("Unable to re-calculate the image sizes after the screen scale changed.", e);
+            return;
+        }
+
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                SystemTray.logger.error("Error running screen scale listener.", e);
+            }
+        }
+    }
+
+    private
+    ScaleChangeMonitor() {
+    }
+}
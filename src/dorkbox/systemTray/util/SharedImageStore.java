@@ -0,0 +1,211 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import dorkbox.systemTray.SystemTray;
+import dorkbox.util.CacheUtil;
+
+/**
+ * The resized images, shared by every tray in the JVM.
+ * <p>
+ * The images are named by their size + a hash of their contents, so identical images are only resized and saved once -- no matter
+ * how many entries (or trays) use them. Each entry that uses an image holds a reference to it, and once the last reference is
+ * released the image is deleted (after it has been unused for a while, in case it is used again).
+ * <p>
+ * The cache directory is named after the first tray that is created (just like each tray had its own cache before), so that other
+ * applications never share it. Only images that were saved by this JVM are ever deleted, because another copy of the same application
+ * might still be showing the ones it found in the cache.
+ * <p>
+ * Images that are not in the store (for example, when AUTO_SIZE is disabled and the original file is used) are ignored.
+ */
+public final
+class SharedImageStore {
+    // the maximum number of images that are kept on disk, even though nothing is using them
+    private static final int MAX_UNUSED = 32;
+
+    // only accessed while synchronized. Created by the first tray
+    private static CacheUtil cache = null;
+
+    // these are only accessed while synchronized
+    private static final Map<String, Integer> references = new HashMap<>();
+
+    // the images that were saved to the cache by this JVM. These are the only ones that we ever delete
+    private static final Set<String> created = new HashSet<>();
+
+    // access-ordered, so the least recently used is first
+    private static final LinkedHashMap<String, File> unused = new LinkedHashMap<>(16, 0.75F, true);
+
+    /**
+     * @param trayName the name of the tray that uses the cache. Only the first name (for the JVM) is used.
+     *
+     * @return the on-disk cache used by all the trays
+     */
+    public static synchronized
+    CacheUtil getCache(final String trayName) {
+        if (cache == null) {
+            // the cache name **MUST** be combined with the currently logged-in user, otherwise permissions get screwed up
+            // when there is more than 1 user logged in at the same time!
+            cache = new CacheUtil(trayName + "Cache" + "_" + System.getProperty("user.name"));
+        }
+
+        return cache;
+    }
+
+    /**
+     * @return the on-disk cache used by all the trays, or null if no tray has been created yet (so there is no cache that belongs to this
+     *         application)
+     */
+    public static synchronized
+    CacheUtil getCache() {
+        return cache;
+    }
+
+    /**
+     * Notifies the store that a new image was saved to the cache by this JVM (so it can be deleted once it is no longer used).
+     *
+     * @return the image file
+     */
+    static synchronized
+    File saved(final File file) {
+        if (file != null) {
+            created.add(file.getAbsolutePath());
+            DiskCacheManager.added(file);
+        }
+
+        return file;
+    }
+
+    /**
+     * Adds a reference to an image that was just saved to (or found in) the cache. This must happen while the image cache is locked
+     * (synchronized on this class), so that the image cannot be deleted before it is referenced.
+     *
+     * @return the image file
+     */
+    static synchronized
+    File track(final File file) {
+        if (file == null) {
+            return null;
+        }
+
+        String path = file.getAbsolutePath();
+        unused.remove(path);
+
+        Integer count = references.get(path);
+        references.put(path, count == null ? 1 : count + 1);
+
+        return file;
+    }
+
+    /**
+     * Adds another reference to an image that is already referenced (for example, the frames of an animation, which are referenced by
+     * the animation AND by the tray while they are displayed).
+     *
+     * @return the image file
+     */
+    public static synchronized
+    File acquire(final File file) {
+        if (file != null) {
+            String path = file.getAbsolutePath();
+
+            Integer count = references.get(path);
+            if (count != null) {
+                references.put(path, count + 1);
+            }
+        }
+
+        return file;
+    }
+
+    /**
+     * Releases a reference to an image. Once an image is no longer used, it will (eventually) be deleted.
+     */
+    public static synchronized
+    void release(final File file) {
+        if (file == null) {
+            return;
+        }
+
+        String path = file.getAbsolutePath();
+
+        Integer count = references.get(path);
+        if (count == null) {
+            // not one of ours
+            return;
+        }
+
+        if (count > 1) {
+            references.put(path, count - 1);
+            return;
+        }
+
+        references.remove(path);
+        DiskCacheManager.released(file);
+
+        if (!created.contains(path)) {
+            // it was already in the cache, so something else might still be using it
+            return;
+        }
+
+        unused.put(path, file);
+
+        if (unused.size() > MAX_UNUSED) {
+            Iterator<File> iterator = unused.values().iterator();
+            File eldest = iterator.next();
+            iterator.remove();
+            created.remove(eldest.getAbsolutePath());
+
+            if (!eldest.delete() && eldest.exists() && SystemTray.DEBUG) {
+                SystemTray.logger.debug("Unable to delete unused image: {}", eldest);
+            }
+        }
+    }
+
+    /**
+     * @return true if the image is in the image cache (and used by something)
+     */
+    public static synchronized
+    boolean isTracked(final File file) {
+        return file != null && references.containsKey(file.getAbsolutePath());
+    }
+
+    /**
+     * @return the number of images that are currently used
+     */
+    public static synchronized
+    int getImageCount() {
+        return references.size();
+    }
+
+    /**
+     * @return the number of images that are no longer used, but have not been deleted yet
+     */
+    public static synchronized
+    int getUnusedCount() {
+        return unused.size();
+    }
+
+    private
+    SharedImageStore() {
+    }
+}
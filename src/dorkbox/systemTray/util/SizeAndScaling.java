@@ -26,8 +26,8 @@ import dorkbox.util.SwingUtil;
 public
 class SizeAndScaling {
     // the tray size as best as possible for the current OS
-    public static int TRAY_SIZE = 0;
-    public static int TRAY_MENU_SIZE = 0;
+    public static volatile int TRAY_SIZE = 0;
+    public static volatile int TRAY_MENU_SIZE = 0;
 
     public static
     void initSizes(final SystemTray.TrayType trayType) {
@@ -54,6 +54,33 @@ class SizeAndScaling {
         }
     }
 
+    /**
+     * Re-calculates the tray and menu image sizes, for example when the screen DPI or scale has changed.
+     *
+     * @return true if the tray or menu image size changed
+     */
+    public static synchronized
+    boolean refreshSizes(final SystemTray.TrayType trayType) {
+        final int oldTraySize = TRAY_SIZE;
+        final int oldMenuSize = TRAY_MENU_SIZE;
+
+        if (OS.INSTANCE.isLinux()) {
+            SizeAndScalingLinux.refresh();
+        }
+
+        // the new sizes are calculated first, so that nothing can see a size of 0
+        TRAY_SIZE = calculateTrayImageSize(trayType);
+        TRAY_MENU_SIZE = calculateMenuImageSize(trayType);
+
+        boolean changed = TRAY_SIZE != oldTraySize || TRAY_MENU_SIZE != oldMenuSize;
+        if (changed && SystemTray.DEBUG) {
+            SystemTray.logger.debug("Tray image size changed from {} to {}", oldTraySize, TRAY_SIZE);
+            SystemTray.logger.debug("Tray menu image size changed from {} to {}", oldMenuSize, TRAY_MENU_SIZE);
+        }
+
+        return changed;
+    }
+
     public static
     double getDpiScaleForMouseClick(int mousePositionX, int mousePositionY) {
         if (OS.INSTANCE.isWindows()) {
@@ -68,49 +95,63 @@ class SizeAndScaling {
     public static
     void getTrayImageSize(final SystemTray.TrayType trayType) {
         if (TRAY_SIZE == 0) {
-            if (OS.INSTANCE.isLinux()) {
-                TRAY_SIZE = SizeAndScalingLinux.getTrayImageSize();
-            }
-            else if (OS.INSTANCE.isMacOsX()) {
-                TRAY_SIZE = SizeAndScalingMacOS.getTrayImageSize();
-            }
-            else if (OS.INSTANCE.isWindows()) {
-                TRAY_SIZE = SizeAndScalingWindows.getTrayImageSize(trayType);
-            } else {
-                // reasonable default
-                TRAY_SIZE = 32;
-            }
-        }
-
-        if (TRAY_SIZE == 0) {
-            // reasonable default
-            TRAY_SIZE = 32;
+            TRAY_SIZE = calculateTrayImageSize(trayType);
         }
     }
 
     public static
     void getMenuImageSize(final SystemTray.TrayType trayType) {
         if (TRAY_MENU_SIZE == 0) {
-            if (OS.INSTANCE.isMacOsX()) {
-                TRAY_MENU_SIZE = SizeAndScalingMacOS.getMenuImageSize();
-            }
-            else if (trayType == SystemTray.TrayType.Swing || trayType == SystemTray.TrayType.WindowsNative) {
-                // Java does not scale the menu item IMAGE **AT ALL**, we must provide the correct size to begin with
-
-                if (OS.INSTANCE.isWindows()) {
-                    TRAY_MENU_SIZE = SizeAndScalingWindows.getMenuImageSize();
-                } else {
-                    // generic method to do this, but not as accurate
-                    TRAY_MENU_SIZE = getMenuImageSizeGeneric();
-                }
-            }
-            else if (OS.INSTANCE.isLinux()) {
-                TRAY_MENU_SIZE = SizeAndScalingLinux.getMenuImageSize();
+            TRAY_MENU_SIZE = calculateMenuImageSize(trayType);
+        }
+    }
+
+    private static
+    int calculateTrayImageSize(final SystemTray.TrayType trayType) {
+        int size;
+
+        if (OS.INSTANCE.isLinux()) {
+            size = SizeAndScalingLinux.getTrayImageSize();
+        }
+        else if (OS.INSTANCE.isMacOsX()) {
+            size = SizeAndScalingMacOS.getTrayImageSize();
+        }
+        else if (OS.INSTANCE.isWindows()) {
+            size = SizeAndScalingWindows.getTrayImageSize(trayType);
+        } else {
+            // reasonable default
+            size = 32;
+        }
+
+        if (size == 0) {
+            // reasonable default
+            size = 32;
+        }
+
+        return size;
+    }
+
+    private static
+    int calculateMenuImageSize(final SystemTray.TrayType trayType) {
+        if (OS.INSTANCE.isMacOsX()) {
+            return SizeAndScalingMacOS.getMenuImageSize();
+        }
+        else if (trayType == SystemTray.TrayType.Swing || trayType == SystemTray.TrayType.WindowsNative) {
+            // Java does not scale the menu item IMAGE **AT ALL**, we must provide the correct size to begin with
+
+            if (OS.INSTANCE.isWindows()) {
+                return SizeAndScalingWindows.getMenuImageSize();
             } else {
-                // reasonable default
-                TRAY_MENU_SIZE = 16;
+                // generic method to do this, but not as accurate
+                return getMenuImageSizeGeneric();
             }
         }
+        else if (OS.INSTANCE.isLinux()) {
+            return SizeAndScalingLinux.getMenuImageSize();
+        } else {
+            // reasonable default
+            return 16;
+        }
     }
 
     private static
@@ -21,8 +21,9 @@ package dorkbox.systemTray.util;
  */
 public
 class SizeAndScalingLinux {
-    public static final int SYSTEM_DPI = GtkTheme.getScreenDPI();
-    public static final double SYSTEM_SCALE = getSystemScale();
+    // these can change while running (for example, when a laptop is connected to a high-DPI monitor). See refresh()
+    public static volatile int SYSTEM_DPI = GtkTheme.getScreenDPI();
+    public static volatile double SYSTEM_SCALE = getSystemScale();
 
     /**
      * Allows overriding of the system tray MENU size (this is what shows in the system tray).
@@ -38,6 +39,15 @@ class SizeAndScalingLinux {
      */
     public static volatile int OVERRIDE_TRAY_SIZE = 0;
 
+    /**
+     * Re-reads the system DPI and scale.
+     */
+    static
+    void refresh() {
+        SYSTEM_DPI = GtkTheme.getScreenDPI();
+        SYSTEM_SCALE = getSystemScale();
+    }
+
     private static
     double getSystemScale() {
         double detectedScale = GtkTheme.getScreenScale();
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray.util;
+
+import dorkbox.systemTray.SystemTray;
+import dorkbox.systemTray.SystemTray.TrayType;
+import dorkbox.systemTray.Tray;
+import dorkbox.systemTray.ui.swing.SwingUIFactory;
+
+/**
+ * Everything that is specific to a tray type, when creating the tray.
+ * <p>
+ * The provider for a tray type is loaded by name, and the providers only reference their own tray classes (and fixes) from inside their
+ * methods. This way, only the classes of the tray type that is actually used are ever loaded -- for example, the AppIndicator tray
+ * never loads the Swing/AWT trays, or javassist for the Swing/AWT fixes.
+ */
+public abstract
+class TrayProvider {
+    private static final String[] providers = new String[TrayType.values().length];
+
+    static {
+        providers[TrayType.Gtk.ordinal()] = "dorkbox.systemTray.ui.gtk.GtkTrayProvider";
+        providers[TrayType.AppIndicator.ordinal()] = "dorkbox.systemTray.ui.gtk.AppIndicatorTrayProvider";
+        providers[TrayType.WindowsNative.ordinal()] = "dorkbox.systemTray.ui.swing.WindowsNativeTrayProvider";
+        providers[TrayType.Swing.ordinal()] = "dorkbox.systemTray.ui.swing.SwingTrayProvider";
+        providers[TrayType.Osx.ordinal()] = "dorkbox.systemTray.ui.osx.OsxTrayProvider";
+        providers[TrayType.Awt.ordinal()] = "dorkbox.systemTray.ui.awt.AwtTrayProvider";
+    }
+
+    /**
+     * @return the provider for the specified tray type, or null if there is none (ie: AutoDetect)
+     */
+    public static
+    TrayProvider get(final TrayType trayType) {
+        final String className = providers[trayType.ordinal()];
+        if (className == null) {
+            return null;
+        }
+
+        try {
+            return (TrayProvider) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            SystemTray.logger.error("Unable to load the tray provider for '{}'", trayType, e);
+            return null;
+        }
+    }
+
+
+    /**
+     * @return the tray type of this provider
+     */
+    public abstract
+    TrayType getType();
+
+    /**
+     * @return true if the tray must be created on the Swing EDT (only when Swing is also the renderer)
+     */
+    public
+    boolean isCreatedOnEdt() {
+        return false;
+    }
+
+    /**
+     * @return the default Swing UI for the menu, or null if this tray does not use a Swing menu.
+     */
+    public
+    SwingUIFactory getDefaultSwingUI() {
+        return null;
+    }
+
+    /**
+     * Fixes the problems that the JDK has with this tray type. This has to be after AWT/GTK is started, but before the tray is created.
+     */
+    public
+    void fixTray() {
+    }
+
+    /**
+     * Creates the tray. The tray image size must already be known.
+     */
+    public abstract
+    Tray create(final String trayName, final ImageResizeUtil imageResizeUtil, final Runnable onRemoveEvent);
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2023 dorkbox, llc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package dorkbox.systemTray;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dorkbox.systemTray.util.EventDispatch;
+
+/**
+ * A range of a menu that shows the latest list of entries from a {@link Flow.Publisher} (for example, the connected devices or the
+ * running jobs). Each list is reconciled with the entries in the range (see {@link Menu#reconcile(List)}), so only what changed is
+ * changed in the native menu.
+ * <p>
+ * Only one list is applied at a time. A list that arrives while the previous one is still being applied is held until it has been
+ * applied, and is replaced by any newer list that arrives in the meantime -- so a fast publisher can never queue up more than one
+ * change to the menu.
+ * <p>
+ * The range starts right after the anchor entry (or at the start of the menu). The entries in it must not be added or removed in any
+ * other way, and {@link Menu#reconcile(List)} must not be used on the same menu.
+ */
+@SuppressWarnings("unused")
+public final
+class MenuSection implements Flow.Subscriber<List<EntrySpec>> {
+    /**
+     * Shows the lists from the publisher in the menu, after the anchor entry.
+     *
+     * @param menu the menu that the entries are shown in
+     * @param anchor the entry after which the entries are shown, or null to show them at the start of the menu. If the anchor is removed
+     *               from the menu, the section is cancelled.
+     * @param publisher the lists of entries to show
+     */
+    public static
+    MenuSection subscribe(final Menu menu, final Entry anchor, final Flow.Publisher<List<EntrySpec>> publisher) {
+        MenuSection section = new MenuSection(menu, anchor);
+        publisher.subscribe(section);
+        return section;
+    }
+
+    private final Menu menu;
+    private final Menu.Section section;
+
+    // these are only accessed while synchronized
+    private Flow.Subscription subscription;
+    private List<EntrySpec> pending;
+    private boolean applying = false;
+    private boolean cancelled = false;
+
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private
+    MenuSection(final Menu menu, final Entry anchor) {
+        this.menu = menu;
+        this.section = new Menu.Section(anchor, false);
+    }
+
+    @Override
+    public
+    void onSubscribe(final Flow.Subscription subscription) {
+        synchronized (this) {
+            if (this.subscription != null || cancelled) {
+                subscription.cancel();
+                return;
+            }
+
+            this.subscription = subscription;
+        }
+
+        subscription.request(1);
+    }
+
+    @Override
+    public
+    void onNext(final List<EntrySpec> specs) {
+        Flow.Subscription subscription;
+        boolean isIdle;
+
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+
+            subscription = this.subscription;
+            isIdle = !applying;
+
+            if (isIdle) {
+                applying = true;
+            }
+            else {
+                // the previous list is still being applied, so this one has to wait (and an older list that was waiting is not needed)
+                if (pending != null) {
+                    dropped.incrementAndGet();
+                }
+                pending = specs;
+            }
+        }
+
+        // there is always a request for the next list, so that lists which would be replaced anyway do not pile up in the publisher.
+        // Only the latest of them is kept, and the menu is only changed once the previous change has been applied.
+        subscription.request(1);
+
+        if (isIdle) {
+            apply(specs);
+        }
+    }
+
+    @Override
+    public
+    void onError(final Throwable throwable) {
+        SystemTray.logger.error("Error getting the entries for the menu.", throwable);
+    }
+
+    @Override
+    public
+    void onComplete() {
+        // the last list stays in the menu
+    }
+
+    /**
+     * Stops showing the lists from the publisher, and removes the entries from the menu.
+     */
+    public
+    void cancel() {
+        Flow.Subscription subscription;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+
+            cancelled = true;
+            pending = null;
+            subscription = this.subscription;
+        }
+
+        if (subscription != null) {
+            subscription.cancel();
+        }
+
+        menu.reconcile(section, Collections.emptyList());
+    }
+
+    /**
+     * @return the number of lists that were shown in the menu
+     */
+    public
+    long getAppliedCount() {
+        return applied.get();
+    }
+
+    /**
+     * @return the number of lists that were never shown, because a newer list arrived before they could be
+     */
+    public
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private
+    void apply(final List<EntrySpec> specs) {
+        boolean exists;
+        try {
+            exists = menu.reconcile(section, specs);
+        } catch (Throwable e) {
+            SystemTray.logger.error("Error updating the menu entries.", e);
+            exists = true;
+        }
+
+        if (!exists) {
+            // the anchor was removed from the menu, so there is nowhere to show the entries
+            cancel();
+            return;
+        }
+
+        applied.incrementAndGet();
+
+        // this runs after the changes to the menu (which are also on the event dispatch) have been made
+        EventDispatch.runLater(this::onApplied);
+    }
+
+    private
+    void onApplied() {
+        List<EntrySpec> next;
+
+        synchronized (this) {
+            next = pending;
+            pending = null;
+
+            if (next == null || cancelled) {
+                applying = false;
+                return;
+            }
+        }
+
+        apply(next);
+    }
+}